@@ -10,6 +10,14 @@ repositories {
     mavenCentral()
 }
 
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[jmh.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
 dependencies {
 
     implementation("com.google.guava:guava:31.0.1-jre")
@@ -19,14 +27,51 @@ dependencies {
     testImplementation("org.assertj:assertj-core:3.24.2")
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.9.2")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.9.2")
+    testAnnotationProcessor(sourceSets.main.get().output)
+
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 java {
     withSourcesJar()
 }
 
-tasks.withType<Test> {
-    useJUnitPlatform()
+tasks.test {
+    // The main suite runs with read counting disabled, as in production
+    useJUnitPlatform {
+        excludeTags("countReads")
+    }
+}
+
+// Read counting can only be enabled on startup, so tests which require it run in a separate JVM.
+// These check that reads made internally are not counted, and that callers are recorded.
+val countReadsTest by tasks.registering(Test::class) {
+    group = "verification"
+    description = "Runs the tests which require read counting to be enabled."
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("countReads")
+    }
+    systemProperty("epsilon.countReads", "true")
+    systemProperty("epsilon.countReads.callers", "true")
+    shouldRunAfter(tasks.test)
+}
+
+tasks.check {
+    dependsOn(countReadsTest)
+    dependsOn(tasks.named(jmh.classesTaskName))
+}
+
+// Runs all benchmarks, with the GC profiler to report allocation rates.
+// Additional JMH arguments can be passed with -Pjmh="...", i.e. -Pjmh="ParseBenchmark -p keys=1000"
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks."
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args = listOf("-prof", "gc", "-rf", "json", "-rff", layout.buildDirectory.file("jmh-results.json").get().asFile.path) + (findProperty("jmh")?.toString()?.split(" ")?.filter { it.isNotBlank() } ?: emptyList())
 }
 
 publishing {
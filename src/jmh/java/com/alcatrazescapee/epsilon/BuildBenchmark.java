@@ -0,0 +1,37 @@
+package com.alcatrazescapee.epsilon;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building a {@link Spec} of each size and shape. Time per key should stay constant as the number of keys grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class BuildBenchmark
+{
+    @Param({"1000", "100000", "1000000"})
+    public int keys;
+
+    @Param({"FLAT", "NESTED", "COMMENTS"})
+    public Configs.Shape shape;
+
+    @Benchmark
+    public Spec build()
+    {
+        return Configs.spec(shape, keys);
+    }
+}
@@ -0,0 +1,43 @@
+package com.alcatrazescapee.epsilon;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+@State(Scope.Benchmark)
+public class ConfigState
+{
+    @Param({"10", "1000", "100000", "1000000"})
+    public int keys;
+
+    @Param({"FLAT", "NESTED", "LISTS", "COMMENTS"})
+    public Configs.Shape shape;
+
+    Spec spec;
+    String text;
+    Map<String, Object> map;
+    Path path;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        spec = Configs.spec(shape, keys);
+        text = Configs.text(spec);
+        map = TomlUtil.parse(text).map();
+        path = Files.createTempFile("epsilon-benchmark", ".toml");
+        Files.writeString(path, text);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(path);
+    }
+}
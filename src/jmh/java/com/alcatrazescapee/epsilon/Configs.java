@@ -0,0 +1,97 @@
+package com.alcatrazescapee.epsilon;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Synthetic specs and config files of various sizes and shapes, used by the benchmarks.
+ */
+public final class Configs
+{
+    static final int KEYS_PER_CATEGORY = 100;
+    static final int NESTING_DEPTH = 8;
+    static final int LIST_LENGTH = 32;
+    static final int COMMENT_LINES = 4;
+
+    static Spec spec(Shape shape, int keys)
+    {
+        final SpecBuilder builder = Spec.builder(keys);
+        int depth = 0;
+        for (int i = 0; i < keys; i++)
+        {
+            if (i % KEYS_PER_CATEGORY == 0)
+            {
+                if (shape == Shape.NESTED && depth < NESTING_DEPTH)
+                {
+                    depth++;
+                }
+                else
+                {
+                    builder.pop(depth);
+                    depth = 1;
+                }
+                if (shape == Shape.COMMENTS) comment(builder, "category" + i);
+                builder.push("category" + i);
+            }
+            if (shape == Shape.COMMENTS) comment(builder, "key" + i);
+            define(builder, shape, i);
+        }
+        builder.pop(depth);
+        return builder.build();
+    }
+
+    static String text(Spec spec)
+    {
+        final StringBuilder text = new StringBuilder();
+        try
+        {
+            spec.write(text);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    private static void define(SpecBuilder builder, Shape shape, int i)
+    {
+        final String name = "key" + i;
+        if (shape == Shape.LISTS)
+        {
+            builder.define(name, Collections.nCopies(LIST_LENGTH, "value" + i));
+            return;
+        }
+        switch (i % 4)
+        {
+            case 0 -> builder.define(name, i);
+            case 1 -> builder.define(name, i * 0.5f, 0f, Float.MAX_VALUE);
+            case 2 -> builder.define(name, i % 3 == 0);
+            default -> builder.define(name, "value " + i);
+        }
+    }
+
+    private static void comment(SpecBuilder builder, String name)
+    {
+        for (int line = 0; line < COMMENT_LINES; line++)
+        {
+            builder.comment("Comment line %d for '%s', which is long enough to resemble real documentation.".formatted(line, name));
+        }
+    }
+
+    public enum Shape
+    {
+        /** Keys in single level categories of {@link #KEYS_PER_CATEGORY} keys. */
+        FLAT,
+        /** Keys in categories nested up to {@link #NESTING_DEPTH} levels deep. */
+        NESTED,
+        /** String list values, each of {@link #LIST_LENGTH} elements. */
+        LISTS,
+        /** Multiple comment lines on every key and category. */
+        COMMENTS
+    }
+
+    private Configs() {}
+}
@@ -0,0 +1,28 @@
+package com.alcatrazescapee.epsilon;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * End to end loading of a config file from disk, via {@link EpsilonUtil#parse(Spec, java.nio.file.Path, java.util.function.Consumer, Runnable)}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class LoadBenchmark
+{
+    @Benchmark
+    public void parse(ConfigState state, Blackhole blackhole)
+    {
+        EpsilonUtil.parse(state.spec, state.path, blackhole::consume, () -> blackhole.consume(state));
+    }
+}
@@ -0,0 +1,48 @@
+package com.alcatrazescapee.epsilon;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alcatrazescapee.epsilon.value.IntValue;
+
+/**
+ * Reading a value, with and without reads being counted. Without counting, this should be no slower than a plain volatile read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadBenchmark
+{
+    private final IntValue value = Spec.builder().define("value", 3);
+
+    @Benchmark
+    public int read()
+    {
+        return value.getAsInt();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Depsilon.countReads=true")
+    public int readCounted()
+    {
+        return value.getAsInt();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Depsilon.countReads=true", "-Depsilon.countReads.callers=true"})
+    public int readCountedWithCallers()
+    {
+        return value.getAsInt();
+    }
+}
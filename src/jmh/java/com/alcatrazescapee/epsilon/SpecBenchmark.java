@@ -0,0 +1,42 @@
+package com.alcatrazescapee.epsilon;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Binding of an already parsed config to a {@link Spec}, resetting it, and writing it back out.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class SpecBenchmark
+{
+    @Benchmark
+    public void parse(ConfigState state, Blackhole blackhole)
+    {
+        state.spec.parse(state.map, blackhole::consume);
+    }
+
+    @Benchmark
+    public void reset(ConfigState state)
+    {
+        state.spec.reset();
+    }
+
+    @Benchmark
+    public void write(ConfigState state) throws IOException
+    {
+        state.spec.write(Writer.nullWriter());
+    }
+}
@@ -0,0 +1,175 @@
+package com.alcatrazescapee.epsilon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Reads and writes files with an {@link AsynchronousFileChannel}, so the calling thread never blocks on file I/O. Writes replace the file atomically, in the same way as {@link AtomicFile}.
+ */
+final class AsyncFiles
+{
+    /**
+     * @return A future of the full contents of the file at {@code path}, which completes exceptionally with an {@link IOException} if it could not be read.
+     */
+    static CompletableFuture<byte[]> read(Path path)
+    {
+        final CompletableFuture<byte[]> future = new CompletableFuture<>();
+        try
+        {
+            final AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8)
+            {
+                close(channel);
+                throw new IOException("File is too large: " + size + " bytes");
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            channel.read(buffer, 0, buffer, new CompletionHandler<>() {
+                @Override
+                public void completed(Integer read, ByteBuffer buffer)
+                {
+                    if (read != -1 && buffer.hasRemaining())
+                    {
+                        channel.read(buffer, buffer.position(), buffer, this);
+                        return;
+                    }
+                    try
+                    {
+                        channel.close();
+                        future.complete(buffer.hasRemaining() ? Arrays.copyOf(buffer.array(), buffer.position()) : buffer.array());
+                    }
+                    catch (IOException e)
+                    {
+                        future.completeExceptionally(e);
+                    }
+                }
+
+                @Override
+                public void failed(Throwable exception, ByteBuffer buffer)
+                {
+                    close(channel);
+                    future.completeExceptionally(exception);
+                }
+            });
+        }
+        catch (IOException e)
+        {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Replaces the contents of the file at {@code path}. The contents are rendered, and the temporary file is forced and moved, on {@code executor}.
+     *
+     * @return A future which completes when the file has been replaced, or completes exceptionally with an {@link IOException} if it could not be written.
+     */
+    static CompletableFuture<Void> write(Path path, AtomicFile.Contents contents, Executor executor)
+    {
+        final Path target = path.toAbsolutePath();
+        final Path temp = AtomicFile.temp(target);
+        return CompletableFuture.supplyAsync(() -> {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try
+            {
+                contents.write(output);
+            }
+            catch (IOException e)
+            {
+                throw new CompletionException(e);
+            }
+            return output.toByteArray();
+        }, executor).thenCompose(bytes -> {
+            final CompletableFuture<AsynchronousFileChannel> future = new CompletableFuture<>();
+            try
+            {
+                final AsynchronousFileChannel channel = AsynchronousFileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                channel.write(buffer, 0, buffer, new CompletionHandler<>() {
+                    @Override
+                    public void completed(Integer written, ByteBuffer buffer)
+                    {
+                        if (buffer.hasRemaining()) channel.write(buffer, buffer.position(), buffer, this);
+                        else future.complete(channel);
+                    }
+
+                    @Override
+                    public void failed(Throwable exception, ByteBuffer buffer)
+                    {
+                        close(channel);
+                        future.completeExceptionally(exception);
+                    }
+                });
+            }
+            catch (IOException e)
+            {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }).thenAcceptAsync(channel -> {
+            try
+            {
+                try (channel)
+                {
+                    channel.force(true);
+                }
+                try
+                {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch (AtomicMoveNotSupportedException e)
+                {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            catch (IOException e)
+            {
+                throw new CompletionException(e);
+            }
+        }, executor).whenComplete((result, exception) -> {
+            if (exception != null)
+            {
+                try
+                {
+                    Files.deleteIfExists(temp);
+                }
+                catch (IOException e)
+                {
+                    exception.addSuppressed(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return The cause of a failed future, without any wrapping {@link CompletionException}.
+     */
+    static Throwable unwrap(Throwable exception)
+    {
+        return exception instanceof CompletionException && exception.getCause() != null ? exception.getCause() : exception;
+    }
+
+    private static void close(AsynchronousFileChannel channel)
+    {
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            // Already failed, so the original exception is reported instead
+        }
+    }
+}
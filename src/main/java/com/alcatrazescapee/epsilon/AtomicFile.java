@@ -0,0 +1,61 @@
+package com.alcatrazescapee.epsilon;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Replaces the contents of a file atomically. The new contents are written to a temporary file in the same directory, forced to disk, and then moved over the original file, so the file is never observed partially written, even if the process crashes mid-write.
+ */
+final class AtomicFile
+{
+    static void write(Path path, Contents contents) throws IOException
+    {
+        final Path target = path.toAbsolutePath();
+        final Path temp = temp(target);
+        try
+        {
+            try (final FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))
+            {
+                final OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel));
+                contents.write(output);
+                output.flush();
+                channel.force(true);
+            }
+            try
+            {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return A unique temporary file in the same directory as {@code target}, so it can be moved over {@code target} atomically.
+     */
+    static Path temp(Path target)
+    {
+        return target.resolveSibling(".%s.%016x.tmp".formatted(target.getFileName(), ThreadLocalRandom.current().nextLong()));
+    }
+
+    @FunctionalInterface
+    interface Contents
+    {
+        void write(OutputStream output) throws IOException;
+    }
+}
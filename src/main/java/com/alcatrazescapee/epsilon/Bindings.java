@@ -0,0 +1,94 @@
+package com.alcatrazescapee.epsilon;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A flat, open addressed hash table from the long name of each value in a {@link Spec}, to its ordinal. This is compiled once when the spec is built, and stores the precomputed hash of each name, so binding a parsed key to a value is a single probe sequence, with no recursion or allocation.
+ */
+final class Bindings
+{
+    private final String[] keys;
+    private final int[] hashes;
+    private final int[] ordinals;
+    private final int mask;
+
+    Bindings(TypedValue<?, ?, ?>[] values)
+    {
+        // Power of two capacity, with a load factor of at most 0.5
+        final int capacity = Integer.highestOneBit(Math.max(values.length, 1) * 4 - 1);
+
+        this.keys = new String[capacity];
+        this.hashes = new int[capacity];
+        this.ordinals = new int[capacity];
+        this.mask = capacity - 1;
+
+        for (int ordinal = 0; ordinal < values.length; ordinal++)
+        {
+            final String key = values[ordinal].longName();
+            final int hash = key.hashCode();
+            int slot = spread(hash) & mask;
+            while (keys[slot] != null)
+            {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            hashes[slot] = hash;
+            ordinals[slot] = ordinal;
+        }
+    }
+
+    /**
+     * @return The ordinal of the value with the long name {@code key}, or {@code -1} if there is no such value.
+     */
+    int find(String key)
+    {
+        final int hash = key.hashCode();
+        int slot = spread(hash) & mask;
+        String found;
+        while ((found = keys[slot]) != null)
+        {
+            if (hashes[slot] == hash && (found == key || found.equals(key)))
+            {
+                return ordinals[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return The ordinal of the value with the long name {@code category + "." + key}, or {@code key} if {@code category} is {@code null}, or {@code -1} if there is no such value. This is equivalent to {@link #find(String)}, without building the long name.
+     */
+    int find(@Nullable String category, String key)
+    {
+        if (category == null)
+        {
+            return find(key);
+        }
+
+        // Equivalent to (category + "." + key).hashCode()
+        int hash = 31 * category.hashCode() + '.';
+        for (int i = 0; i < key.length(); i++)
+        {
+            hash = 31 * hash + key.charAt(i);
+        }
+
+        final int length = category.length() + 1 + key.length();
+        int slot = spread(hash) & mask;
+        String found;
+        while ((found = keys[slot]) != null)
+        {
+            if (hashes[slot] == hash && found.length() == length && found.startsWith(category) && found.charAt(category.length()) == '.' && found.endsWith(key))
+            {
+                return ordinals[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int spread(int hash)
+    {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,135 @@
+package com.alcatrazescapee.epsilon;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.Nullable;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches a config file for changes, and reloads a {@link Spec} from it when it changes. Bursts of changes to the file are debounced into a single reload, which happens on a background thread.
+ * Values are updated in place, without being reset to their defaults first, and only values whose parsed content changed are set. A file with syntax errors is reported, and not loaded, so a partially saved file never replaces the current values.
+ * <p>
+ * Created via {@link EpsilonUtil#watch(Spec, Path, Consumer, Duration)}, and stopped via {@link #close()}.
+ */
+public final class ConfigWatcher implements Closeable
+{
+    private final Spec spec;
+    private final Path path;
+    private final Consumer<String> onError;
+    private final long debounceMillis;
+
+    private final WatchService watchService;
+    private final ScheduledExecutorService executor;
+
+    @Nullable private ScheduledFuture<?> pending;
+    private boolean closed;
+
+    ConfigWatcher(Spec spec, Path path, Consumer<String> onError, Duration debounce) throws IOException
+    {
+        this.spec = spec;
+        this.path = path.toAbsolutePath();
+        this.onError = onError;
+        this.debounceMillis = debounce.toMillis();
+
+        this.watchService = this.path.getFileSystem().newWatchService();
+        this.path.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        this.executor = Executors.newSingleThreadScheduledExecutor(task -> daemon(task, "Epsilon Reload: " + path));
+
+        daemon(this::watch, "Epsilon Watcher: " + path).start();
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        closed = true;
+        executor.shutdownNow();
+        watchService.close();
+    }
+
+    private void watch()
+    {
+        try
+        {
+            while (true)
+            {
+                final WatchKey key = watchService.take();
+                for (final WatchEvent<?> event : key.pollEvents())
+                {
+                    if (event.kind() == OVERFLOW || path.getFileName().equals(event.context()))
+                    {
+                        schedule();
+                    }
+                }
+                if (!key.reset())
+                {
+                    onError.accept("Stopped watching file: '%s': directory is no longer accessible".formatted(path));
+                    return;
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e)
+        {
+            // Closed
+        }
+    }
+
+    private synchronized void schedule()
+    {
+        if (closed) return;
+        if (pending != null) pending.cancel(false);
+        pending = executor.schedule(this::reload, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void reload()
+    {
+        final String text;
+        try
+        {
+            text = Files.readString(path);
+        }
+        catch (NoSuchFileException e)
+        {
+            return; // The file was removed, or is in the middle of being replaced, so wait for it to be created
+        }
+        catch (IOException e)
+        {
+            onError.accept("Unable to read file: '%s': %s".formatted(path, e));
+            return;
+        }
+
+        try
+        {
+            if (spec.reload(path, text, onError))
+            {
+                // The file may be partially written, so keep all current values, rather than resetting every value which failed to parse
+                onError.accept("Unable to reload file: '%s': invalid syntax, keeping the current values".formatted(path));
+            }
+        }
+        catch (RuntimeException e)
+        {
+            // Otherwise, this would be silently swallowed by the executor
+            onError.accept("Unable to reload file: '%s': %s".formatted(path, e));
+        }
+    }
+
+    private static Thread daemon(Runnable task, String name)
+    {
+        final Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,56 @@
+package com.alcatrazescapee.epsilon;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A single problem found while loading a config. The message is only formatted when {@link #message()} is called.
+ *
+ * @param kind The kind of problem.
+ * @param key The full name of the value, i.e. {@code foo.bar.baz}, the category of a listener, or the path of the file for problems reading or writing a file.
+ * @param line The line in the config file, starting from 1, or {@code -1} if not known, i.e. for missing values.
+ * @param column The column in the config file, starting from 1, or {@code -1} if not known.
+ * @param cause The error which caused this problem, if any.
+ */
+public record Diagnostic(Kind kind, String key, int line, int column, @Nullable Throwable cause)
+{
+    public String message()
+    {
+        return switch (kind)
+        {
+            case MISSING -> "Missing value for: '" + key + "'";
+            case INVALID -> "Reading " + key + ": " + (cause == null ? null : cause.getMessage());
+            case READ -> "Unable to read file: '" + key + "': " + cause;
+            case WRITE -> "Error writing file: '" + key + "': " + cause;
+            case SNAPSHOT -> "Unable to write snapshot: '" + key + "': " + cause;
+            case OVERRIDE -> "Invalid override for " + key + " from " + (cause == null ? null : cause.getMessage());
+            case INCLUDE -> "Unable to include file: '" + key + "': " + (cause instanceof ParseError ? cause.getMessage() : cause);
+            case LISTENER -> "Unable to notify listener for: '" + key + "': " + cause;
+        };
+    }
+
+    @Override
+    public String toString()
+    {
+        return line == -1 ? message() : "%d:%d: %s".formatted(line, column, message());
+    }
+
+    public enum Kind
+    {
+        /** A value which was missing from the config. */
+        MISSING,
+        /** A value which was present, but could not be parsed, or failed validation. */
+        INVALID,
+        /** The config file could not be read. */
+        READ,
+        /** The config file could not be written. */
+        WRITE,
+        /** The snapshot of the config file could not be written. */
+        SNAPSHOT,
+        /** A value supplied by a {@link Source} which could not be parsed, or failed validation. The value from the config file is used instead. */
+        OVERRIDE,
+        /** A file included by the config file could not be read, had errors parsing, or was included circularly. */
+        INCLUDE,
+        /** A listener for changes to a value or category could not be notified, as its executor rejected it. */
+        LISTENER
+    }
+}
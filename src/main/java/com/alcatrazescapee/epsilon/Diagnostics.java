@@ -0,0 +1,126 @@
+package com.alcatrazescapee.epsilon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A sink for the {@link Diagnostic}s reported while loading a config. At most {@code limit} diagnostics are kept, after which further diagnostics are only counted, so loading a badly broken config stays cheap.
+ * This is not thread safe, and should be used for a single load at a time.
+ */
+public class Diagnostics
+{
+    public static final int DEFAULT_LIMIT = 100;
+
+    public static Diagnostics create()
+    {
+        return new Diagnostics(DEFAULT_LIMIT);
+    }
+
+    public static Diagnostics create(int limit)
+    {
+        return new Diagnostics(limit);
+    }
+
+    /**
+     * @return A sink which formats and forwards every diagnostic to {@code consumer} as it is reported, without keeping any.
+     */
+    static Diagnostics forwarding(Consumer<String> consumer)
+    {
+        return new Diagnostics(Integer.MAX_VALUE) {
+            @Override
+            void add(Diagnostic diagnostic)
+            {
+                consumer.accept(diagnostic.message());
+            }
+        };
+    }
+
+    private final List<Diagnostic> entries;
+    private final int limit;
+    private int count;
+
+    private Diagnostics(int limit)
+    {
+        this.entries = new ArrayList<>();
+        this.limit = limit;
+        this.count = 0;
+    }
+
+    /**
+     * @return The diagnostics which were kept, in the order they were reported.
+     */
+    public List<Diagnostic> entries()
+    {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * @return The number of diagnostics reported, including those which were not kept.
+     */
+    public int count()
+    {
+        return count;
+    }
+
+    /**
+     * @return {@code true} if more diagnostics were reported than were kept.
+     */
+    public boolean isTruncated()
+    {
+        return count > limit;
+    }
+
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    void report(Diagnostic.Kind kind, String key, @Nullable Throwable cause)
+    {
+        if (++count <= limit)
+        {
+            add(new Diagnostic(kind, key, -1, -1, cause));
+        }
+    }
+
+    void add(Diagnostic diagnostic)
+    {
+        entries.add(diagnostic);
+    }
+
+    /**
+     * Fills in the line and column of each kept diagnostic for a value which is present in the config {@code text}. This parses the text again, but only if any diagnostics were kept.
+     */
+    void locate(String text)
+    {
+        if (entries.isEmpty())
+        {
+            return;
+        }
+
+        final TomlUtil.Locations locations = TomlUtil.locate(text);
+        int[] lineStarts = new int[16];
+        int lines = 1;
+        for (int i = text.indexOf('\n'); i != -1; i = text.indexOf('\n', i + 1))
+        {
+            if (lines == lineStarts.length) lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+            lineStarts[lines++] = i + 1;
+        }
+
+        for (int i = 0; i < entries.size(); i++)
+        {
+            final Diagnostic diagnostic = entries.get(i);
+            final TomlUtil.Span span = diagnostic.kind() == Diagnostic.Kind.INVALID ? locations.values.get(diagnostic.key()) : null;
+            if (span != null)
+            {
+                final int index = Arrays.binarySearch(lineStarts, 0, lines, span.start());
+                final int line = index >= 0 ? index : -index - 2;
+                entries.set(i, new Diagnostic(diagnostic.kind(), diagnostic.key(), line + 1, span.start() - lineStarts[line] + 1, diagnostic.cause()));
+            }
+        }
+    }
+}
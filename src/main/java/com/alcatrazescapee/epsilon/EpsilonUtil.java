@@ -1,19 +1,60 @@
 package com.alcatrazescapee.epsilon;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.Map;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
-
-import org.apache.commons.lang3.mutable.MutableBoolean;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import org.jetbrains.annotations.Nullable;
 
 public final class EpsilonUtil
 {
+    /**
+     * A config file to be loaded by {@link #parseAll(List)}.
+     */
+    public record ConfigFile(Spec spec, Path path) {}
+
+    /**
+     * @param errors All errors reported while loading this file, in the order they were reported.
+     * @param time The time taken to load this file, including reading and rewriting it.
+     */
+    public record FileResult(Path path, List<String> errors, Duration time) {}
+
+    /**
+     * @param files The result of each file, in the order they were provided.
+     * @param time The total time taken to load all files.
+     */
+    public record ParseAllResult(List<FileResult> files, Duration time)
+    {
+        public boolean hasErrors()
+        {
+            return files.stream().anyMatch(file -> !file.errors().isEmpty());
+        }
+    }
+
     /**
      * Parse and load a config file. If the file does not exist, a new one will be created.
      * If either parse errors, or violations of the {@code spec} were present the file will be overwritten with a corrected file. This will preserve any modified values but correct any invalid ones.
+     * If the file parsed without errors, only the missing or invalid values are corrected, and the rest of the file, including formatting and comments, is kept as is. Otherwise, the whole file is regenerated. In either case the file is replaced atomically.
+     * <p>
+     * A config file may include other files with {@code include "path"} directives before its first category, with paths relative to the config file, which must be within the directory of the config file. Values in the config file take precedence over included files, and later includes take precedence over earlier ones. Includes are not followed for specs with {@link Spec#setLimits(TomlUtil.Limits) limits} which do not allow them.
+     * Included files are loaded concurrently, and are only parsed again when their contents change. A config file which includes other files is never corrected or regenerated.
      *
      * @param spec The config spec to be loaded.
      * @param path The path to the config file. Will be created if it does not exist.
@@ -21,14 +62,115 @@ public final class EpsilonUtil
      */
     public static void parse(Spec spec, Path path, Consumer<String> onError)
     {
-        parse(spec, path, onError, () -> write(spec, path, onError));
+        parseWithReport(spec, path, Diagnostics.forwarding(onError));
+    }
+
+    /**
+     * Parse and load a config file, as with {@link #parse(Spec, Path, Consumer)}, reporting structured {@link Diagnostic}s to {@code diagnostics}. Diagnostics for values present in the file include the line and column of the value.
+     */
+    public static void parse(Spec spec, Path path, Diagnostics diagnostics)
+    {
+        parseWithReport(spec, path, diagnostics);
+    }
+
+    /**
+     * Parse and load a config file, as with {@link #parse(Spec, Path, Consumer)}.
+     *
+     * @return A summary of the load, including the time spent in each phase.
+     */
+    public static LoadReport parseWithReport(Spec spec, Path path, Consumer<String> onError)
+    {
+        return parseWithReport(spec, path, Diagnostics.forwarding(onError));
+    }
+
+    /**
+     * Parse and load a config file, as with {@link #parse(Spec, Path, Diagnostics)}.
+     *
+     * @return A summary of the load, including the time spent in each phase.
+     */
+    public static LoadReport parseWithReport(Spec spec, Path path, Diagnostics diagnostics)
+    {
+        final LoadTrace trace = new LoadTrace(path, diagnostics);
+        if (Files.notExists(path))
+        {
+            return correct(path, reset(spec, trace, diagnostics), trace, diagnostics);
+        }
+
+        final byte[] bytes;
+        final LoadTrace.PhaseEvent phase = trace.begin(LoadTrace.READ);
+        try
+        {
+            bytes = Files.readAllBytes(path);
+        }
+        catch (IOException e)
+        {
+            trace.end(phase);
+            diagnostics.report(Diagnostic.Kind.READ, path.toString(), e);
+            spec.reset(diagnostics);
+            return trace.report();
+        }
+        trace.end(phase);
+        return correct(path, load(spec, path, bytes, trace, diagnostics), trace, diagnostics);
+    }
+
+    /**
+     * Parse and load a config file, as with {@link #parseAsync(Spec, Path, Diagnostics, Executor)}, reporting errors to {@code onError}.
+     */
+    public static CompletableFuture<LoadReport> parseAsync(Spec spec, Path path, Consumer<String> onError, Executor executor)
+    {
+        return parseAsync(spec, path, Diagnostics.forwarding(onError), executor);
+    }
+
+    /**
+     * Parse and load a config file, as with {@link #parse(Spec, Path, Diagnostics)}, without blocking the calling thread. The file is read and written with non-blocking file channels, and parsing, conversion, and rendering of any corrected file run on {@code executor}.
+     * All values are published at once, after the whole file has been read and converted, and before the file is corrected. {@code diagnostics} should not be used by any other thread until the returned future completes.
+     *
+     * @return A future of the summary of the load, which completes once the file has been loaded, and corrected if necessary.
+     */
+    public static CompletableFuture<LoadReport> parseAsync(Spec spec, Path path, Diagnostics diagnostics, Executor executor)
+    {
+        final LoadTrace trace = new LoadTrace(path, diagnostics);
+        final LoadTrace.PhaseEvent read = trace.begin(LoadTrace.READ);
+        return AsyncFiles.read(path).handleAsync((bytes, exception) -> {
+            trace.end(read);
+            if (exception == null)
+            {
+                return load(spec, path, bytes, trace, diagnostics);
+            }
+            final Throwable cause = AsyncFiles.unwrap(exception);
+            if (cause instanceof NoSuchFileException)
+            {
+                return reset(spec, trace, diagnostics);
+            }
+            diagnostics.report(Diagnostic.Kind.READ, path.toString(), cause);
+            spec.reset(diagnostics);
+            return null;
+        }, executor).thenCompose(correction -> {
+            if (correction == null)
+            {
+                return CompletableFuture.completedFuture(trace.report());
+            }
+            final LoadTrace.PhaseEvent write = trace.begin(LoadTrace.WRITE);
+            return AsyncFiles.write(path, correction, executor).handle((result, exception) -> {
+                trace.end(write);
+                if (exception != null)
+                {
+                    diagnostics.report(Diagnostic.Kind.WRITE, path.toString(), AsyncFiles.unwrap(exception));
+                }
+                else
+                {
+                    trace.written = true;
+                }
+                return trace.report();
+            });
+        });
     }
 
     public static void parse(Spec spec, Path path, Consumer<String> onError, Runnable onWrite)
     {
-        spec.reset();
         if (Files.notExists(path))
         {
+            spec.reset(Diagnostics.forwarding(onError));
             onWrite.run();
             return;
         }
@@ -41,32 +183,356 @@ public final class EpsilonUtil
         catch (IOException e)
         {
             onError.accept("Unable to read file: '%s': %s".formatted(path, e));
+            spec.reset(Diagnostics.forwarding(onError));
             return;
         }
 
-        final TomlUtil.TomlParseResult result = TomlUtil.parse(text);
-        final MutableBoolean errors = new MutableBoolean(result.errors());
-        final Map<String, Object> data = result.map();
-        spec.parse(data, e -> {
-            errors.setTrue();
-            onError.accept(e);
+        final Diagnostics diagnostics = Diagnostics.forwarding(onError);
+        final Object[] raw = new Object[spec.size()];
+        final List<String> included = new ArrayList<>();
+        final boolean parseErrors = spec.bind(text, raw, null, included);
+        spec.include(path, included, raw, diagnostics);
+        final BitSet invalid = spec.load(raw, diagnostics);
+        if (included.isEmpty() && (!invalid.isEmpty() || parseErrors))
+        {
+            onWrite.run();
+        }
+    }
+
+    /**
+     * Parse and load multiple independent config files concurrently, as with {@link #parse(Spec, Path, Consumer)}, using a thread per file, up to the number of available processors.
+     *
+     * @see #parseAll(List, Executor)
+     */
+    public static ParseAllResult parseAll(List<ConfigFile> files)
+    {
+        final int threads = Math.max(1, Math.min(files.size(), Runtime.getRuntime().availableProcessors()));
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, task -> {
+            final Thread thread = new Thread(task, "Epsilon Parse");
+            thread.setDaemon(true);
+            return thread;
         });
+        try
+        {
+            return parseAll(files, executor);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
 
-        if (errors.booleanValue())
+    /**
+     * Parse and load multiple independent config files concurrently on {@code executor}, as with {@link #parse(Spec, Path, Consumer)}. Each spec should appear at most once, and each path should be distinct.
+     * This blocks until all files have been loaded, or rewritten if necessary.
+     *
+     * @return The result for each file, in the same order as {@code files}, including all errors for that file in the order they were reported, and the total time taken.
+     */
+    public static ParseAllResult parseAll(List<ConfigFile> files, Executor executor)
+    {
+        final long start = System.nanoTime();
+        final FileResult[] results = new FileResult[files.size()];
+        final CompletableFuture<?>[] futures = new CompletableFuture<?>[files.size()];
+        for (int i = 0; i < futures.length; i++)
         {
-            onWrite.run();
+            final int index = i;
+            final ConfigFile file = files.get(i);
+            futures[i] = CompletableFuture.runAsync(() -> {
+                final long fileStart = System.nanoTime();
+                final List<String> errors = new ArrayList<>();
+                parse(file.spec(), file.path(), errors::add);
+                results[index] = new FileResult(file.path(), errors, Duration.ofNanos(System.nanoTime() - fileStart));
+            }, executor);
         }
+        CompletableFuture.allOf(futures).join();
+        return new ParseAllResult(List.of(results), Duration.ofNanos(System.nanoTime() - start));
     }
 
+    /**
+     * Parse and load a config file, as with {@link #parse(Spec, Path, Consumer)}, using a binary snapshot to skip parsing the config file where possible.
+     * After the config file is parsed with no errors, the raw config values are written to a snapshot at {@code cache}. On later calls, if neither the contents of the config file, nor the shape of the {@code spec} have changed, the values are loaded directly from the snapshot.
+     * A config file which includes other files is never snapshot, or corrected.
+     *
+     * @param spec The config spec to be loaded.
+     * @param path The path to the config file. Will be created if it does not exist.
+     * @param cache The path to the snapshot file. Will be created or replaced as needed.
+     * @param onError A consumer for errors, either during parsing of the config file.
+     */
+    public static void parseCached(Spec spec, Path path, Path cache, Consumer<String> onError)
+    {
+        final Diagnostics diagnostics = Diagnostics.forwarding(onError);
+        if (Files.notExists(path))
+        {
+            spec.reset(diagnostics);
+            write(spec, path, diagnostics);
+            return;
+        }
+
+        final byte[] bytes;
+        try
+        {
+            bytes = Files.readAllBytes(path);
+        }
+        catch (IOException e)
+        {
+            diagnostics.report(Diagnostic.Kind.READ, path.toString(), e);
+            spec.reset(diagnostics);
+            return;
+        }
+
+        final HashCode contentHash = Hashing.sha256().hashBytes(bytes);
+        final Object[] snapshot = Snapshot.read(cache, contentHash, spec);
+        if (snapshot != null)
+        {
+            // The text is only needed in order to patch invalid values, which is the uncommon case for a snapshot hit
+            final BitSet invalid = spec.load(snapshot, diagnostics);
+            if (!invalid.isEmpty())
+            {
+                write(path, Objects.requireNonNull(correction(spec, new String(bytes, StandardCharsets.UTF_8), false, invalid)), diagnostics);
+            }
+            return;
+        }
+
+        final String text = new String(bytes, StandardCharsets.UTF_8);
+        final Object[] raw = new Object[spec.size()];
+        final List<String> included = new ArrayList<>();
+        final boolean parseErrors = spec.bind(text, raw, null, included);
+        if (!included.isEmpty())
+        {
+            // The snapshot is only keyed by the contents of this file, so a file which includes others is never snapshot. As with parse(), it is never corrected either.
+            spec.include(path, included, raw, diagnostics);
+            spec.load(raw, diagnostics);
+            return;
+        }
+        final Object[] rawCopy = raw.clone();
+        final BitSet invalid = spec.load(raw, diagnostics);
+        if (!invalid.isEmpty() || parseErrors)
+        {
+            write(path, Objects.requireNonNull(correction(spec, text, parseErrors, invalid)), diagnostics);
+            return;
+        }
+
+        try
+        {
+            Snapshot.write(cache, contentHash, spec, rawCopy);
+        }
+        catch (IOException e)
+        {
+            diagnostics.report(Diagnostic.Kind.SNAPSHOT, cache.toString(), e);
+        }
+    }
+
+    /**
+     * Watches a config file for changes, and reloads the {@code spec} whenever it changes, after a short debounce. This does not perform an initial load, which should be done via {@link #parse(Spec, Path, Consumer)}.
+     *
+     * @see #watch(Spec, Path, Consumer, Duration)
+     */
+    public static ConfigWatcher watch(Spec spec, Path path, Consumer<String> onError) throws IOException
+    {
+        return watch(spec, path, onError, Duration.ofMillis(250));
+    }
+
+    /**
+     * Watches a config file for changes, and reloads the {@code spec} whenever it changes. Reloads happen on a background thread, and only update values whose content changed, without resetting any values to their defaults in between.
+     * Unlike {@link #parse(Spec, Path, Consumer)}, a reload will never overwrite the file, even if it contains errors. If the file contains syntax errors, it is not loaded at all, and the current values are kept until the file is valid again.
+     *
+     * @param spec The config spec to be reloaded.
+     * @param path The path to the config file.
+     * @param onError A consumer for errors, either during reading or parsing of the config file. This is invoked on the background thread.
+     * @param debounce The time to wait after the last change to the file, before reloading.
+     * @return A watcher, which must be closed to stop watching the file.
+     * @throws IOException If the file's directory could not be watched.
+     */
+    public static ConfigWatcher watch(Spec spec, Path path, Consumer<String> onError, Duration debounce) throws IOException
+    {
+        return new ConfigWatcher(spec, path, onError, debounce);
+    }
+
+    /**
+     * Persists changes made to values in the {@code spec} at runtime, via {@link com.alcatrazescapee.epsilon.value.Value#set(Object)}, to the config file. Changes are written on a background thread, {@code window} after the first unwritten change, so a burst of changes results in a single write.
+     * Only the changed values are updated in the file, unless it is missing or contains syntax errors, in which case it is regenerated.
+     *
+     * @param spec The config spec to be persisted. Only one write-behind may be open for a spec at a time.
+     * @param path The path to the config file.
+     * @param onError A consumer for errors, either during reading or writing of the config file. This is invoked on the thread which writes the file.
+     * @param window The time to wait after the first change, for further changes, before writing.
+     * @return A write-behind, which must be closed to stop persisting changes, and which writes any pending changes when closed.
+     */
+    public static WriteBehind writeBehind(Spec spec, Path path, Consumer<String> onError, Duration window)
+    {
+        return new WriteBehind(spec, path, onError, window);
+    }
+
+    /**
+     * Writes the {@code spec}, including all current values, as a config file to {@code path}. The file is replaced atomically, so it is never left partially written.
+     */
     public static void write(Spec spec, Path path, Consumer<String> onError)
     {
-        try (final BufferedWriter writer = Files.newBufferedWriter(path))
+        write(spec, path, Diagnostics.forwarding(onError));
+    }
+
+    /**
+     * Writes the {@code spec}, as with {@link #write(Spec, Path, Consumer)}, without blocking the calling thread. The config is rendered, with the values at the time it is rendered, on {@code executor}, and written with a non-blocking file channel.
+     *
+     * @return A future which completes once the file has been replaced, or completes exceptionally, with an {@link IOException} as the cause, if it could not be written.
+     */
+    public static CompletableFuture<Void> writeAsync(Spec spec, Path path, Executor executor)
+    {
+        return AsyncFiles.write(path, contents(spec), executor);
+    }
+
+    private static void write(Spec spec, Path path, Diagnostics diagnostics)
+    {
+        write(path, contents(spec), diagnostics);
+    }
+
+    /**
+     * @return {@code true} if the file was written successfully.
+     */
+    private static boolean write(Path path, AtomicFile.Contents contents, Diagnostics diagnostics)
+    {
+        try
+        {
+            AtomicFile.write(path, contents);
+            return true;
+        }
+        catch (IOException e)
+        {
+            diagnostics.report(Diagnostic.Kind.WRITE, path.toString(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the {@code changed} values in the {@code spec} to the config file at {@code path}, by patching them into the existing file where possible.
+     * A file with syntax errors is regenerated, unless it includes other files, in which case it is not written at all.
+     */
+    static void persist(Spec spec, Path path, BitSet changed, Diagnostics diagnostics)
+    {
+        final String text;
+        try
+        {
+            text = Files.readString(path);
+        }
+        catch (NoSuchFileException e)
         {
-            spec.write(writer::write);
+            write(spec, path, diagnostics);
+            return;
         }
         catch (IOException e)
         {
-            onError.accept("Error writing file: '%s': %s".formatted(path, e));
+            diagnostics.report(Diagnostic.Kind.READ, path.toString(), e);
+            return;
+        }
+
+        final List<String> included = new ArrayList<>();
+        final boolean parseErrors = spec.bind(text, new Object[spec.size()], null, included);
+        if (parseErrors && !included.isEmpty())
+        {
+            // Regenerating the file would drop its includes, and write every value into it, overriding the included files
+            diagnostics.report(Diagnostic.Kind.WRITE, path.toString(), new ParseError("Invalid syntax in a file with includes, which cannot be regenerated"));
+            return;
         }
+        write(path, Objects.requireNonNull(correction(spec, text, parseErrors, changed)), diagnostics);
+    }
+
+    /**
+     * Writes the {@code spec}, including all current values, as a config file directly to {@code output}, which may be any {@link Appendable} such as a {@link java.io.Writer} or {@link StringBuilder}.
+     */
+    public static void write(Spec spec, Appendable output) throws IOException
+    {
+        spec.write(output);
+    }
+
+    /**
+     * Writes the {@code spec}, including all current values, as a UTF-8 encoded config file directly to {@code channel}. The channel is not closed.
+     */
+    public static void write(Spec spec, WritableByteChannel channel) throws IOException
+    {
+        final Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        spec.write(writer);
+        writer.flush();
+    }
+
+    /**
+     * Resets the {@code spec}, for a config file which does not exist.
+     *
+     * @return The contents of the new config file.
+     */
+    private static AtomicFile.Contents reset(Spec spec, LoadTrace trace, Diagnostics diagnostics)
+    {
+        final LoadTrace.PhaseEvent phase = trace.begin(LoadTrace.LOAD);
+        spec.reset(diagnostics);
+        trace.end(phase);
+        return contents(spec);
+    }
+
+    /**
+     * Binds and loads the contents of the config file at {@code path} into the {@code spec}, including any included files.
+     *
+     * @return The contents of the corrected config file, or {@code null} if it does not need to be corrected.
+     */
+    @Nullable
+    private static AtomicFile.Contents load(Spec spec, Path path, byte[] bytes, LoadTrace trace, Diagnostics diagnostics)
+    {
+        final String text = new String(bytes, StandardCharsets.UTF_8);
+        trace.fileSize = bytes.length;
+
+        LoadTrace.PhaseEvent phase = trace.begin(LoadTrace.BIND);
+        final Object[] raw = new Object[spec.size()];
+        final List<String> included = new ArrayList<>();
+        final boolean parseErrors = spec.bind(text, raw, trace, included);
+        spec.include(path, included, raw, diagnostics);
+        trace.end(phase);
+
+        phase = trace.begin(LoadTrace.LOAD);
+        final BitSet invalid = spec.load(raw, diagnostics);
+        diagnostics.locate(text);
+        trace.end(phase);
+
+        // A file which includes others is never corrected, as a value may be missing or invalid in a fragment, rather than the file itself
+        return included.isEmpty() ? correction(spec, text, parseErrors, invalid) : null;
+    }
+
+    /**
+     * Writes the {@code correction}, if any, to the config file at {@code path}.
+     */
+    private static LoadReport correct(Path path, @Nullable AtomicFile.Contents correction, LoadTrace trace, Diagnostics diagnostics)
+    {
+        if (correction != null)
+        {
+            final LoadTrace.PhaseEvent phase = trace.begin(LoadTrace.WRITE);
+            trace.written = write(path, correction, diagnostics);
+            trace.end(phase);
+        }
+        return trace.report();
+    }
+
+    /**
+     * Corrects a config file, after loading its {@code text} into the {@code spec}. If there were no parse errors, only the {@code invalid} values are patched, otherwise the file is regenerated.
+     *
+     * @return The contents of the corrected config file, or {@code null} if it does not need to be corrected.
+     */
+    @Nullable
+    private static AtomicFile.Contents correction(Spec spec, String text, boolean parseErrors, BitSet invalid)
+    {
+        if (parseErrors)
+        {
+            return contents(spec);
+        }
+        if (!invalid.isEmpty())
+        {
+            return output -> output.write(spec.patch(text, invalid).getBytes(StandardCharsets.UTF_8));
+        }
+        return null;
+    }
+
+    private static AtomicFile.Contents contents(Spec spec)
+    {
+        return output -> {
+            final Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+            spec.write(writer);
+            writer.flush();
+        };
     }
 }
@@ -0,0 +1,237 @@
+package com.alcatrazescapee.epsilon;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Loads the fragments included by a config file with {@code include "path"}, and merges their values into the values of the including file.
+ * <ul>
+ *     <li>Paths are resolved relative to the directory of the including file, and fragments may include further fragments. Paths must be relative, and must stay within the directory of the config file, so a config can never read an arbitrary file.</li>
+ *     <li>A value in a file takes precedence over the same value in any fragment it includes. Fragments take precedence in the order they are listed, so a later fragment overrides an earlier one.</li>
+ *     <li>All fragments included by a file are read and parsed concurrently, on a dedicated pool shared by all loads, so blocking file reads never run on the common pool.</li>
+ *     <li>Each fragment is cached by the hash of its contents, so a fragment which has not changed since the last load is only read, and not parsed again. Only fragments included by the last load are kept.</li>
+ * </ul>
+ */
+final class Fragments
+{
+    private final Spec spec;
+    private final Map<Path, Fragment> cache;
+
+    Fragments(Spec spec)
+    {
+        this.spec = spec;
+        this.cache = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Loads all fragments {@code included} by the file at {@code path}, and merges them into {@code raw}. Values already present in {@code raw} are kept.
+     */
+    void include(Path path, List<String> included, Object[] raw, Diagnostics diagnostics)
+    {
+        final Path source = path.toAbsolutePath().normalize();
+        final Load load = new Load(source.getParent());
+        final Object[] merged = resolve(source, included, Set.of(source), load).join();
+
+        // Fragments which are no longer included are evicted, so the cache is bounded by the fragments of a single load
+        cache.keySet().retainAll(load.visited);
+        for (int i = 0; i < raw.length; i++)
+        {
+            if (raw[i] == null)
+            {
+                raw[i] = merged[i];
+            }
+        }
+
+        // Diagnostics are not thread safe, so problems are only reported once all fragments have been loaded
+        for (final Problem problem : load.problems)
+        {
+            diagnostics.report(Diagnostic.Kind.INCLUDE, problem.path.toString(), problem.cause);
+        }
+    }
+
+    /**
+     * @return The merged values of each fragment in {@code included}, and all fragments they include, in order of precedence.
+     */
+    private CompletableFuture<Object[]> resolve(Path source, List<String> included, Set<Path> ancestors, Load load)
+    {
+        final List<CompletableFuture<Object[]>> futures = new ArrayList<>(included.size());
+        for (final String name : included)
+        {
+            final Path path = locate(source, name, load);
+            if (path == null)
+            {
+                continue;
+            }
+            if (ancestors.contains(path))
+            {
+                load.problems.add(new Problem(path, new ParseError("Circular include")));
+                continue;
+            }
+            load.visited.add(path);
+            futures.add(CompletableFuture.supplyAsync(() -> load(path, load.problems), Pool.EXECUTOR).thenCompose(fragment -> {
+                if (fragment == null) return CompletableFuture.completedFuture(null);
+                if (fragment.included.isEmpty()) return CompletableFuture.completedFuture(fragment.raw);
+
+                final Set<Path> next = new HashSet<>(ancestors);
+                next.add(path);
+                return resolve(path, fragment.included, next, load).thenApply(inner -> {
+                    final Object[] merged = inner.clone();
+                    overlay(merged, fragment.raw);
+                    return merged;
+                });
+            }));
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            final Object[] merged = new Object[spec.size()];
+            for (final CompletableFuture<Object[]> future : futures)
+            {
+                final Object[] raw = future.join();
+                if (raw != null)
+                {
+                    overlay(merged, raw);
+                }
+            }
+            return merged;
+        });
+    }
+
+    /**
+     * @return The path of the fragment {@code name}, included by the file at {@code source}, or {@code null} if it is not a valid include, which is reported as a problem.
+     */
+    @Nullable
+    private static Path locate(Path source, String name, Load load)
+    {
+        final Path path;
+        try
+        {
+            if (Path.of(name).isAbsolute())
+            {
+                load.problems.add(new Problem(Path.of(name), new ParseError("Include path must be relative")));
+                return null;
+            }
+            path = source.resolveSibling(name).normalize();
+        }
+        catch (InvalidPathException e)
+        {
+            load.problems.add(new Problem(source, new ParseError(() -> "Invalid include path: " + e.getMessage())));
+            return null;
+        }
+        if (!path.startsWith(load.directory))
+        {
+            load.problems.add(new Problem(path, new ParseError("Include path must be within the directory of the config file")));
+            return null;
+        }
+        return path;
+    }
+
+    /**
+     * Reads the fragment at {@code path}, and parses it only if its contents have changed since it was last loaded.
+     */
+    @Nullable
+    private Fragment load(Path path, Queue<Problem> problems)
+    {
+        final byte[] bytes;
+        try
+        {
+            bytes = Files.readAllBytes(path);
+        }
+        catch (IOException e)
+        {
+            problems.add(new Problem(path, e));
+            return null;
+        }
+
+        final HashCode hash = Hashing.sha256().hashBytes(bytes);
+        final Fragment cached = cache.get(path);
+        if (cached != null && cached.hash.equals(hash))
+        {
+            return cached;
+        }
+
+        final Object[] raw = new Object[spec.size()];
+        final List<String> included = new ArrayList<>();
+        if (spec.bind(new String(bytes, StandardCharsets.UTF_8), raw, null, included))
+        {
+            problems.add(new Problem(path, new ParseError("Invalid syntax")));
+        }
+
+        final Fragment fragment = new Fragment(hash, raw, included);
+        cache.put(path, fragment);
+        return fragment;
+    }
+
+    /**
+     * Sets every value present in {@code top} in {@code raw}, overriding any existing value.
+     */
+    private static void overlay(Object[] raw, Object[] top)
+    {
+        for (int i = 0; i < raw.length; i++)
+        {
+            if (top[i] != null)
+            {
+                raw[i] = top[i];
+            }
+        }
+    }
+
+    /**
+     * A parsed fragment. The bound values in {@code raw} are shared between loads, and are never modified.
+     */
+    record Fragment(HashCode hash, Object[] raw, List<String> included) {}
+
+    record Problem(Path path, Throwable cause) {}
+
+    /**
+     * The state of a single call to {@link #include(Path, List, Object[], Diagnostics)}, shared by every fragment it loads.
+     */
+    static final class Load
+    {
+        final Path directory;
+        final Queue<Problem> problems = new ConcurrentLinkedQueue<>();
+        final Set<Path> visited = ConcurrentHashMap.newKeySet();
+
+        Load(Path directory)
+        {
+            this.directory = directory;
+        }
+    }
+
+    /**
+     * The pool on which all fragments are read and parsed, which is shared by all loads, and only created on first use. Idle threads are stopped, so the pool costs nothing when no loads are running.
+     */
+    static final class Pool
+    {
+        static final ExecutorService EXECUTOR = create();
+
+        private static ExecutorService create()
+        {
+            final int threads = Runtime.getRuntime().availableProcessors();
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+                final Thread thread = new Thread(task, "Epsilon Include");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+}
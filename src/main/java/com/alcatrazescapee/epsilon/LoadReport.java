@@ -0,0 +1,20 @@
+package com.alcatrazescapee.epsilon;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * A summary of a single load of a config file by {@link EpsilonUtil#parseWithReport(Spec, Path, Diagnostics)}. The same phases are also reported as JFR events, under the {@code Epsilon} category, when enabled in a recording.
+ *
+ * @param fileSize The size of the config file in bytes, or {@code 0} if it did not exist, or could not be read.
+ * @param tokens The number of tokens scanned from the config file.
+ * @param keys The number of key-value pairs parsed from the config file, including any which are not in the spec.
+ * @param errors The number of diagnostics reported during this load.
+ * @param written {@code true} if the config file was created, corrected, or regenerated.
+ * @param read The time spent reading the config file.
+ * @param bind The time spent scanning and parsing the config file, and binding each key to a value.
+ * @param load The time spent converting, validating, and publishing values.
+ * @param write The time spent writing the config file.
+ * @param total The total time taken, including all phases.
+ */
+public record LoadReport(Path path, long fileSize, int tokens, int keys, int errors, boolean written, Duration read, Duration bind, Duration load, Duration write, Duration total) {}
@@ -0,0 +1,123 @@
+package com.alcatrazescapee.epsilon;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Times each phase of loading a single config file, emitting a JFR event for each phase, and collecting a {@link LoadReport}.
+ * The JFR events are only populated and committed when enabled in a recording, so with no recording this costs a few {@link System#nanoTime()} calls per load.
+ */
+final class LoadTrace
+{
+    static final int READ = 0, BIND = 1, LOAD = 2, WRITE = 3;
+
+    private final Path path;
+    private final Diagnostics diagnostics;
+    private final int initialErrors;
+    private final long start;
+    private final long[] times;
+
+    long fileSize;
+    int tokens;
+    int keys;
+    boolean written;
+
+    LoadTrace(Path path, Diagnostics diagnostics)
+    {
+        this.path = path;
+        this.diagnostics = diagnostics;
+        this.initialErrors = diagnostics.count();
+        this.start = System.nanoTime();
+        this.times = new long[4];
+    }
+
+    PhaseEvent begin(int phase)
+    {
+        final PhaseEvent event = switch (phase)
+        {
+            case READ -> new ReadEvent();
+            case BIND -> new BindEvent();
+            case LOAD -> new LoadEvent();
+            default -> new WriteEvent();
+        };
+        event.phase = phase;
+        event.begin();
+        event.start = System.nanoTime();
+        return event;
+    }
+
+    void end(PhaseEvent event)
+    {
+        times[event.phase] += System.nanoTime() - event.start;
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.path = path.toString();
+            event.fileSize = fileSize;
+            event.tokens = tokens;
+            event.keys = keys;
+            event.errors = errors();
+            event.commit();
+        }
+    }
+
+    LoadReport report()
+    {
+        return new LoadReport(path, fileSize, tokens, keys, errors(), written, Duration.ofNanos(times[READ]), Duration.ofNanos(times[BIND]), Duration.ofNanos(times[LOAD]), Duration.ofNanos(times[WRITE]), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private int errors()
+    {
+        return diagnostics.count() - initialErrors;
+    }
+
+    @Category({"Epsilon", "Config"})
+    abstract static class PhaseEvent extends Event
+    {
+        @Label("Path")
+        String path;
+
+        @Label("File Size")
+        @DataAmount
+        long fileSize;
+
+        @Label("Tokens")
+        int tokens;
+
+        @Label("Keys")
+        int keys;
+
+        @Label("Errors")
+        @Description("The number of missing or invalid values, or errors reading or writing the file, reported so far.")
+        int errors;
+
+        transient int phase;
+        transient long start;
+    }
+
+    @Name("com.alcatrazescapee.epsilon.Read")
+    @Label("Config Read")
+    @Description("Reading the contents of a config file.")
+    static final class ReadEvent extends PhaseEvent {}
+
+    @Name("com.alcatrazescapee.epsilon.Bind")
+    @Label("Config Bind")
+    @Description("Scanning and parsing a config file, and binding each key to a value in the spec.")
+    static final class BindEvent extends PhaseEvent {}
+
+    @Name("com.alcatrazescapee.epsilon.Load")
+    @Label("Config Load")
+    @Description("Converting and validating each value, and publishing the new values.")
+    static final class LoadEvent extends PhaseEvent {}
+
+    @Name("com.alcatrazescapee.epsilon.Write")
+    @Label("Config Write")
+    @Description("Writing a new, or corrected, config file.")
+    static final class WriteEvent extends PhaseEvent {}
+}
@@ -1,9 +1,11 @@
 package com.alcatrazescapee.epsilon;
 
 import java.util.function.Supplier;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * An error occurring during a transformation from a config value or type to a derived value as specified in a {@link Spec}.
+ * Parse errors are expected, and frequent when loading an invalid config, so they do not capture a stack trace, and messages can be formatted lazily, only if they are read.
  */
 public final class ParseError extends RuntimeException
 {
@@ -33,8 +35,26 @@ public final class ParseError extends RuntimeException
         catch (RuntimeException e) { throw new ParseError(e.getMessage()); }
     }
 
+    @Nullable private final Supplier<String> message;
+
     public ParseError(String message)
     {
-        super(message);
+        super(message, null, false, false);
+        this.message = null;
+    }
+
+    /**
+     * Creates a parse error with a message which is only built if it is read.
+     */
+    public ParseError(Supplier<String> message)
+    {
+        super(null, null, false, false);
+        this.message = message;
+    }
+
+    @Override
+    public String getMessage()
+    {
+        return message == null ? super.getMessage() : message.get();
     }
 }
@@ -0,0 +1,210 @@
+package com.alcatrazescapee.epsilon;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import com.google.common.hash.HashCode;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A compact binary snapshot of the raw config values bound to a {@link Spec}. It is keyed by a hash of the contents of the config file, and the {@link Spec#fingerprint()} of the spec, so it is only used when neither has changed since it was written.
+ * This allows a config to be loaded without tokenizing or parsing the config file.
+ */
+final class Snapshot
+{
+    private static final int MAGIC = 0x45505331; // EPS1
+    private static final int VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte INT = 1;
+    private static final byte FLOAT = 2;
+    private static final byte FALSE = 3;
+    private static final byte TRUE = 4;
+    private static final byte STRING = 5;
+    private static final byte LIST = 6;
+    private static final byte LONG = 7;
+    private static final byte DOUBLE = 8;
+
+    /**
+     * @return The raw config values in the snapshot at {@code path}, in the same order as the values in {@code spec}, or {@code null} if the snapshot is missing, does not match {@code contentHash} and {@code spec}, or cannot be read.
+     */
+    @Nullable
+    static Object[] read(Path path, HashCode contentHash, Spec spec)
+    {
+        if (Files.notExists(path))
+        {
+            return null;
+        }
+        // Read the snapshot fully, so lengths can be checked against the remaining bytes before anything is allocated
+        try (final DataInputStream input = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(path))))
+        {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION || !readHash(input).equals(contentHash) || !readHash(input).equals(spec.fingerprint()) || input.readInt() != spec.size())
+            {
+                return null;
+            }
+            final Object[] raw = new Object[spec.size()];
+            for (int i = 0; i < raw.length; i++)
+            {
+                raw[i] = readValue(input);
+            }
+            return raw;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            return null; // A corrupt snapshot is treated the same as a stale one
+        }
+    }
+
+    /**
+     * Writes a snapshot of {@code raw} config values to {@code path}. The snapshot is written atomically, so a partially written snapshot is never observed.
+     */
+    static void write(Path path, HashCode contentHash, Spec spec, Object[] raw) throws IOException
+    {
+        AtomicFile.write(path, stream -> {
+            final DataOutputStream output = new DataOutputStream(stream);
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            writeHash(output, contentHash);
+            writeHash(output, spec.fingerprint());
+            output.writeInt(raw.length);
+            for (final Object value : raw)
+            {
+                writeValue(output, value);
+            }
+            output.flush();
+        });
+    }
+
+    private static HashCode readHash(DataInputStream input) throws IOException
+    {
+        final byte[] bytes = new byte[input.readUnsignedByte()];
+        input.readFully(bytes);
+        return HashCode.fromBytes(bytes);
+    }
+
+    private static void writeHash(DataOutputStream output, HashCode hash) throws IOException
+    {
+        final byte[] bytes = hash.asBytes();
+        output.writeByte(bytes.length);
+        output.write(bytes);
+    }
+
+    @Nullable
+    private static Object readValue(DataInputStream input) throws IOException
+    {
+        return readValue(input, input.readByte());
+    }
+
+    @Nullable
+    private static Object readValue(DataInputStream input, byte tag) throws IOException
+    {
+        return switch (tag)
+        {
+            case NULL -> null;
+            case INT -> input.readInt();
+            case LONG -> input.readLong();
+            case FLOAT -> input.readFloat();
+            case DOUBLE -> input.readDouble();
+            case FALSE -> false;
+            case TRUE -> true;
+            case STRING ->
+            {
+                final byte[] bytes = new byte[readLength(input)];
+                input.readFully(bytes);
+                yield new String(bytes, StandardCharsets.UTF_8);
+            }
+            case LIST ->
+            {
+                // Read into a raw list, in the same way as the parser, so primitive lists are not boxed
+                final int size = readLength(input); // Every element takes at least one byte
+                final TomlUtil.RawList list = new TomlUtil.RawList();
+                for (int i = 0; i < size; i++)
+                {
+                    final byte elementTag = input.readByte();
+                    switch (elementTag)
+                    {
+                        case INT -> list.addInt(input.readInt());
+                        case FLOAT -> list.addFloat(input.readFloat());
+                        case FALSE -> list.addBool(false);
+                        case TRUE -> list.addBool(true);
+                        default -> list.add(readValue(input, elementTag));
+                    }
+                }
+                yield list;
+            }
+            default -> throw new IOException("Unknown tag: " + tag);
+        };
+    }
+
+    /**
+     * Reads a length, which must be non-negative and no larger than the number of bytes remaining in the snapshot.
+     */
+    private static int readLength(DataInputStream input) throws IOException
+    {
+        final int length = input.readInt();
+        if (length < 0 || length > input.available())
+        {
+            throw new IOException("Invalid length: " + length);
+        }
+        return length;
+    }
+
+    private static void writeValue(DataOutputStream output, @Nullable Object value) throws IOException
+    {
+        if (value == null)
+        {
+            output.writeByte(NULL);
+        }
+        else if (value instanceof Integer intValue)
+        {
+            output.writeByte(INT);
+            output.writeInt(intValue);
+        }
+        else if (value instanceof Long longValue)
+        {
+            output.writeByte(LONG);
+            output.writeLong(longValue);
+        }
+        else if (value instanceof Float floatValue)
+        {
+            output.writeByte(FLOAT);
+            output.writeFloat(floatValue);
+        }
+        else if (value instanceof Double doubleValue)
+        {
+            output.writeByte(DOUBLE);
+            output.writeDouble(doubleValue);
+        }
+        else if (value instanceof Boolean boolValue)
+        {
+            output.writeByte(boolValue ? TRUE : FALSE);
+        }
+        else if (value instanceof String string)
+        {
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            output.writeByte(STRING);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+        else if (value instanceof List<?> list)
+        {
+            output.writeByte(LIST);
+            output.writeInt(list.size());
+            for (final Object element : list)
+            {
+                writeValue(output, element);
+            }
+        }
+        else
+        {
+            throw new IOException("Cannot write value of type " + value.getClass());
+        }
+    }
+
+    private Snapshot() {}
+}
@@ -0,0 +1,94 @@
+package com.alcatrazescapee.epsilon;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A layer of values which override the values loaded from a config file, i.e. from environment variables, or set programmatically. Sources are added to a spec with {@link Spec#addSource(Source)}.
+ * On each load, every source is asked for every value in the spec, by full name, and the values they supply are merged with the values from the config file, so reading a value never needs to consult any source.
+ * Values supplied by a source are never written to the config file.
+ */
+public interface Source
+{
+    /** The origin of a value which was loaded from the config file. */
+    String FILE = "file";
+    /** The origin of a value which was missing or invalid, and so took its default value. */
+    String DEFAULT = "default";
+
+    /**
+     * A source of environment variables, named by {@link #environmentName(String, String)}, i.e. {@code category.maxValue} with the prefix {@code APP} is read from {@code APP_CATEGORY_MAX_VALUE}.
+     * Variables are parsed as config values, i.e. {@code 5}, {@code true}, or {@code [1, 2]}, and anything which is not a valid value is read as a string, so strings do not need to be quoted.
+     */
+    static Source environment(String prefix)
+    {
+        final Map<String, String> names = new ConcurrentHashMap<>();
+        return of("environment", key -> TomlUtil.parseValue(System.getenv(names.computeIfAbsent(key, k -> environmentName(prefix, k)))));
+    }
+
+    /**
+     * A source of system properties, named by the full name of each value, with {@code prefix}, i.e. {@code category.maxValue} with the prefix {@code app.} is read from {@code -Dapp.category.maxValue}.
+     * Properties are parsed in the same way as {@link #environment(String)}.
+     */
+    static Source systemProperties(String prefix)
+    {
+        return of("system properties", key -> TomlUtil.parseValue(System.getProperty(prefix + key)));
+    }
+
+    /**
+     * A source of programmatic overrides, by full name. The map is read on each load, so it may be modified between loads. Values are used as is, and should be of the same types as parsed config values, i.e. {@code Integer}, {@code String}, or {@code List}.
+     */
+    static Source of(String name, Map<String, ?> values)
+    {
+        return of(name, values::get);
+    }
+
+    static Source of(String name, Function<String, ?> lookup)
+    {
+        return new Source() {
+            @Override public String name() { return name; }
+            @Override @Nullable public Object get(String key) { return lookup.apply(key); }
+        };
+    }
+
+    /**
+     * Maps the full name of a value to an environment variable name. Dots and dashes are replaced with underscores, and an underscore is inserted at each lower to upper case boundary, before the name is upper cased, and prefixed by {@code prefix} and an underscore.
+     */
+    static String environmentName(String prefix, String key)
+    {
+        final StringBuilder name = new StringBuilder(prefix.length() + key.length() + 8);
+        if (!prefix.isEmpty())
+        {
+            name.append(prefix).append('_');
+        }
+        for (int i = 0; i < key.length(); i++)
+        {
+            final char c = key.charAt(i);
+            if (c == '.' || c == '-')
+            {
+                name.append('_');
+            }
+            else
+            {
+                if (Character.isUpperCase(c) && i > 0 && !Character.isUpperCase(key.charAt(i - 1)) && Character.isLetterOrDigit(key.charAt(i - 1)))
+                {
+                    name.append('_');
+                }
+                name.append(Character.toUpperCase(c));
+            }
+        }
+        return name.toString();
+    }
+
+    /**
+     * @return The name of this source, which is reported as the origin of values it supplies.
+     */
+    String name();
+
+    /**
+     * @param key The full name of a value, i.e. {@code foo.bar}
+     * @return The raw config value for {@code key}, or {@code null} if this source does not supply it.
+     */
+    @Nullable Object get(String key);
+}
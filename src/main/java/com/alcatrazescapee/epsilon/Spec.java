@@ -1,15 +1,32 @@
 package com.alcatrazescapee.epsilon;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.Consumer;
-import java.util.regex.Pattern;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 import com.google.common.base.Preconditions;
-import org.apache.commons.lang3.ArrayUtils;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
+import com.alcatrazescapee.epsilon.value.ReadCounter;
 import com.alcatrazescapee.epsilon.value.Value;
 import org.jetbrains.annotations.Nullable;
 
@@ -17,125 +34,766 @@ public final class Spec
 {
     public static SpecBuilder builder()
     {
-        return new Builder();
+        return new Builder(0);
+    }
+
+    /**
+     * A builder for a spec of around {@code expectedValues} values, with storage presized for them. This is intended for very large, i.e. generated, specs.
+     */
+    public static SpecBuilder builder(int expectedValues)
+    {
+        return new Builder(expectedValues);
     }
 
     private final Node root;
+    private final TypedValue<?, ?, ?>[] values;
+    private final Bindings bindings;
+    private final Symbols symbols;
+    private final StampedLock lock;
+    private final List<Listener> listeners;
+    private final Fragments fragments;
+    private final List<Source> sources;
+
+    private volatile long generation;
+    private volatile String[] origins;
+    private volatile Object[] shadowed;
+    private volatile TomlUtil.Limits limits;
+    @Nullable private volatile Thread publisher;
+    @Nullable private HashCode fingerprint;
+    private boolean tracked;
 
-    Spec(Node root)
+    Spec(Node root, TypedValue<?, ?, ?>[] values)
     {
         this.root = root;
+        this.values = values;
+        this.bindings = new Bindings(values);
+        this.symbols = new Symbols(root.names(new HashSet<>(Math.max(16, values.length * 3))));
+        this.lock = new StampedLock();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.fragments = new Fragments(this);
+        this.sources = new CopyOnWriteArrayList<>();
+        this.generation = 0;
+        this.origins = new String[values.length];
+        this.shadowed = new Object[values.length];
+        this.limits = TomlUtil.Limits.DEFAULT;
+
+        Arrays.fill(origins, Source.DEFAULT);
+    }
+
+    /**
+     * Reads from values in this spec, with the guarantee that all values read are from the same generation, i.e. the same load of the config, even if a reload happens concurrently on another thread.
+     * This is the only way to read several related values consistently, as reading values directly does not check for a concurrent reload.
+     * The {@code reader} may be invoked more than once, if a reload happens concurrently with it, and so should not have any side effects.
+     *
+     * @return The result of {@code reader}.
+     */
+    public <T> T read(Supplier<T> reader)
+    {
+        final long stamp = lock.tryOptimisticRead();
+        if (stamp != 0)
+        {
+            final T result = reader.get();
+            if (lock.validate(stamp))
+            {
+                return result;
+            }
+        }
+        final long readStamp = lock.readLock();
+        try
+        {
+            return reader.get();
+        }
+        finally
+        {
+            lock.unlockRead(readStamp);
+        }
+    }
+
+    /**
+     * @return The number of times values in this spec have been loaded, either from a config, or reset to their defaults.
+     */
+    public long generation()
+    {
+        return generation;
+    }
+
+    /**
+     * Listens for changes to a single {@code value} in this spec. The {@code listener} is invoked on {@code executor}, with the current value, at most once for each load of this spec in which the value changed.
+     * Notifications are coalesced, so if the value changes again before the {@code listener} has been invoked, it will only be invoked once, with the latest value. If {@code executor} rejects a notification, it is reported as an error of the load which changed the value.
+     */
+    public <T> void onChange(Value<T> value, Executor executor, Consumer<? super T> listener)
+    {
+        for (int i = 0; i < values.length; i++)
+        {
+            if (values[i].value() == value)
+            {
+                listeners.add(new Listener(values[i].longName(), i, i + 1, executor, () -> listener.accept(ReadCounter.uncounted(value))));
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Value is not defined in this spec.");
+    }
+
+    /**
+     * Listens for changes to any value in a {@code category} in this spec, including any child categories. The {@code listener} is invoked on {@code executor} at most once for each load of this spec in which any of those values changed, and is coalesced in the same way as {@link #onChange(Value, Executor, Consumer)}.
+     *
+     * @param category The full name of the category, i.e. {@code foo.bar}, or {@code ""} for all values in this spec.
+     */
+    public void onChange(String category, Executor executor, Runnable listener)
+    {
+        final String prefix = category.isEmpty() ? "" : category + ".";
+        int start = -1, end = -1;
+        for (int i = 0; i < values.length; i++)
+        {
+            if (values[i].longName().startsWith(prefix))
+            {
+                if (start == -1) start = i;
+                end = i + 1;
+            }
+        }
+        Preconditions.checkArgument(start != -1, "No values are defined in category '" + category + "'.");
+        listeners.add(new Listener(category, start, end, executor, listener));
+    }
+
+    /**
+     * Reports how many times each value in this spec has been read, in order to find values read on hot paths, or values which are never read at all. Reads made by this library, i.e. when writing a config, are not counted.
+     * Requires reads to be counted, see {@link ReadCounter}.
+     *
+     * @return The reads of each value, by full name, in the order they were defined.
+     */
+    public Map<String, ReadCounter.Reads> reads()
+    {
+        Preconditions.checkState(ReadCounter.ENABLED, "Reads are not counted, run with -Depsilon.countReads=true");
+        final Map<String, ReadCounter.Reads> reads = new LinkedHashMap<>();
+        for (final TypedValue<?, ?, ?> value : values)
+        {
+            final ReadCounter counter = value.value().readCounter();
+            if (counter != null)
+            {
+                reads.put(value.longName(), counter.snapshot());
+            }
+        }
+        return reads;
+    }
+
+    /**
+     * Adds a {@code source} of values which override the values loaded from a config file. Sources take precedence in the order they are added, so a later source overrides an earlier one. Sources take effect on the next load.
+     */
+    public void addSource(Source source)
+    {
+        sources.add(source);
+    }
+
+    /**
+     * Sets the {@code limits} on the size, list depth, and number of tokens of config files loaded into this spec, including any included files, i.e. for configs which are not trusted. A config which exceeds a limit is not parsed any further, and is treated as having a syntax error.
+     * Limits also control if {@code include "path"} directives are followed, which they are by default, but not for limits created without specifying {@link TomlUtil.Limits#includes()}.
+     */
+    public void setLimits(TomlUtil.Limits limits)
+    {
+        this.limits = limits;
+    }
+
+    /**
+     * @return Where the current {@code value} was loaded from, as of the last load: {@link Source#FILE}, {@link Source#DEFAULT}, or the {@link Source#name()} of the source which supplied it.
+     */
+    public String origin(Value<?> value)
+    {
+        for (int i = 0; i < values.length; i++)
+        {
+            if (values[i].value() == value)
+            {
+                return origins[i];
+            }
+        }
+        throw new IllegalArgumentException("Value is not defined in this spec.");
+    }
+
+    /**
+     * Tracks changes made to values by {@link Value#set(Object)}, outside of loading this spec. Each change is reported to {@code listener}, by ordinal, on the thread which made it.
+     * A changed value is written as is, even if it was supplied by a {@link Source}, until the next load.
+     *
+     * @param listener The listener, or {@code null} to stop tracking changes.
+     */
+    synchronized void track(@Nullable IntConsumer listener)
+    {
+        Preconditions.checkState(listener == null || !tracked, "Changes to this spec are already tracked.");
+        tracked = listener != null;
+        for (int i = 0; i < values.length; i++)
+        {
+            final int ordinal = i;
+            values[i].value().onSet(listener == null ? () -> {} : () -> {
+                if (Thread.currentThread() != publisher)
+                {
+                    shadowed[ordinal] = null;
+                    listener.accept(ordinal);
+                }
+            });
+        }
     }
 
-    void write(FileWriter writer) throws IOException
+    /**
+     * Writes all values, except values supplied by a {@link Source}, which are written as they were loaded from the config file.
+     */
+    void write(Appendable output) throws IOException
     {
-        root.write(writer, 0);
+        root.write(output, 0, 0, shadowed);
     }
 
+    /**
+     * Loads all values from {@code element}. Values which are missing or invalid take their default value.
+     * All values are first parsed into a staging copy, before being published as a single generation. Concurrent readers which read several values via {@link #read(Supplier)} will see either all old, or all new values. Values read directly are each either old or new, but may be from different generations.
+     */
     void parse(Map<String, Object> element, Consumer<String> error)
     {
-        root.parse(element, error);
+        final Object[] staged = new Object[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            staged[i] = element.get(values[i].longName());
+        }
+        load(staged, Diagnostics.forwarding(error));
     }
 
-    void reset()
+    /**
+     * Parses and loads all values directly from config {@code text}, binding each parsed key to its value with a single lookup, without building an intermediate map.
+     *
+     * @return {@code true} if there were any errors parsing the text.
+     * @see #parse(Map, Consumer)
+     */
+    boolean parse(String text, Consumer<String> error)
     {
-        root.reset();
+        final Object[] raw = new Object[values.length];
+        final boolean errors = bind(text, raw);
+        load(raw, error);
+        return errors;
     }
 
-    @FunctionalInterface
-    interface FileWriter
+    /**
+     * Parses and loads all values from config {@code text}, as with {@link #parse(String, Consumer)}, including the values of any files it includes, resolved relative to {@code path}.
+     * Unlike {@link #parse(String, Consumer)}, if there were any errors parsing the text, no values are loaded, and the current generation is kept.
+     *
+     * @return {@code true} if there were any errors parsing the text, in which case nothing was loaded.
+     */
+    boolean reload(Path path, String text, Consumer<String> error)
     {
-        void write(String text) throws IOException;
+        final Object[] raw = new Object[values.length];
+        final List<String> included = new ArrayList<>();
+        if (bind(text, raw, null, included))
+        {
+            return true;
+        }
+        final Diagnostics diagnostics = Diagnostics.forwarding(error);
+        include(path, included, raw, diagnostics);
+        load(raw, diagnostics);
+        return false;
     }
 
-    record Node(String name, @Nullable String[] comment, Map<String, Node> children, Map<String, TypedValue<?, ?, ?>> values)
+    /**
+     * Parses config {@code text}, and binds the raw config value for each key to its ordinal in {@code raw}, without parsing or loading them.
+     * Names are resolved through the {@link Symbols} of this spec, and bound by category and key, so known keys are bound without allocating any strings.
+     *
+     * @return {@code true} if there were any errors parsing the text.
+     */
+    boolean bind(String text, Object[] raw)
     {
-        Node(String name, @Nullable String[] comment)
+        return bind(text, raw, null, null);
+    }
+
+    /**
+     * Binds config {@code text}, as with {@link #bind(String, Object[])}, recording the number of tokens and keys parsed in {@code trace}, and the path of each included file in {@code included}.
+     * If {@code included} is {@code null}, include directives are ignored.
+     */
+    boolean bind(String text, Object[] raw, @Nullable LoadTrace trace, @Nullable List<String> included)
+    {
+        return TomlUtil.parse(text, new TomlUtil.ValueVisitor() {
+            @Override
+            void visitKeyValue(@Nullable String category, String key, Object value)
+            {
+                final int ordinal = bindings.find(category, key);
+                if (ordinal != -1)
+                {
+                    raw[ordinal] = value;
+                }
+                if (trace != null)
+                {
+                    trace.keys++;
+                }
+            }
+
+            @Override
+            public void visitInclude(String path)
+            {
+                if (included != null)
+                {
+                    included.add(path);
+                }
+            }
+        }, symbols, trace, limits);
+    }
+
+    /**
+     * Loads all files {@code included} by the config file at {@code path}, and merges their raw config values into {@code raw}, underneath the values already bound from the file itself.
+     *
+     * @see Fragments
+     */
+    void include(Path path, List<String> included, Object[] raw, Diagnostics diagnostics)
+    {
+        if (!included.isEmpty())
         {
-            this(name, comment, new LinkedHashMap<>(), new LinkedHashMap<>());
+            fragments.include(path, included, raw, diagnostics);
         }
+    }
+
+    /**
+     * Parses and loads all values from their raw config values in {@code raw}, in the same order as {@link #values}. The array is overwritten with the parsed values.
+     *
+     * @return The ordinals of all values which were missing or invalid.
+     */
+    BitSet load(Object[] raw, Consumer<String> error)
+    {
+        return load(raw, Diagnostics.forwarding(error));
+    }
+
+    /**
+     * Parses and loads all values, as with {@link #load(Object[], Consumer)}, reporting any missing or invalid values to {@code diagnostics}.
+     *
+     * @return The ordinals of all values which were missing or invalid.
+     */
+    BitSet load(Object[] raw, Diagnostics diagnostics)
+    {
+        final BitSet invalid = stage(raw, diagnostics);
+        final Object[] shadowed = new Object[values.length];
+        final String[] origins = override(raw, invalid, shadowed, diagnostics);
+        publish(raw, origins, shadowed, diagnostics);
+        return invalid;
+    }
 
-        boolean containsKey(String key)
+    /**
+     * Corrects only the {@code invalid} values in config {@code text}, which must have parsed without errors, leaving everything else in the text, including formatting and comments, untouched.
+     * Invalid values are replaced in place with their current value. Missing values are inserted after the last key in their category, and missing categories are appended to the end of the text.
+     *
+     * @param invalid The ordinals of the values to correct, as returned by {@link #load(Object[], Consumer)}.
+     * @return The corrected text.
+     */
+    String patch(String text, BitSet invalid)
+    {
+        final Patch patch = new Patch(text, TomlUtil.locate(text), invalid, shadowed);
+        try
+        {
+            root.patch(patch, 0, 0);
+            return patch.apply();
+        }
+        catch (IOException e)
         {
-            return children.containsKey(key) || values.containsKey(key);
+            throw new UncheckedIOException(e); // Unreachable, as we only ever write to a StringBuilder
+        }
+    }
+
+    /**
+     * @return The number of values in this spec.
+     */
+    int size()
+    {
+        return values.length;
+    }
+
+    /**
+     * @return A hash of the shape of this spec, which is the name, and the written default value of each value in order. This identifies specs which can load the same raw config values.
+     */
+    HashCode fingerprint()
+    {
+        HashCode fingerprint = this.fingerprint;
+        if (fingerprint == null)
+        {
+            final Hasher hasher = Hashing.sha256().newHasher();
+            for (final TypedValue<?, ?, ?> value : values)
+            {
+                hasher.putString(value.longName(), StandardCharsets.UTF_8)
+                    .putByte((byte) 0)
+                    .putString(value.writeDefault(), StandardCharsets.UTF_8)
+                    .putByte((byte) 0);
+            }
+            this.fingerprint = fingerprint = hasher.hash();
+        }
+        return fingerprint;
+    }
+
+    void reset()
+    {
+        reset(Diagnostics.forwarding(error -> {}));
+    }
+
+    /**
+     * Resets all values to their defaults, except for values supplied by a {@link Source}.
+     */
+    void reset(Diagnostics diagnostics)
+    {
+        final Object[] staged = new Object[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            staged[i] = values[i].defaultValue();
+        }
+        final BitSet invalid = new BitSet();
+        invalid.set(0, values.length);
+        final Object[] shadowed = new Object[values.length];
+        final String[] origins = override(staged, invalid, shadowed, diagnostics);
+        publish(staged, origins, shadowed, diagnostics);
+    }
+
+    /**
+     * Replaces each raw config value in {@code staged}, in the same order as {@link #values}, with its parsed value.
+     */
+    private BitSet stage(Object[] staged, Diagnostics diagnostics)
+    {
+        final BitSet invalid = new BitSet();
+        for (int i = 0; i < values.length; i++)
+        {
+            final int count = diagnostics.count();
+            staged[i] = values[i].stage(staged[i], diagnostics);
+            if (diagnostics.count() != count)
+            {
+                invalid.set(i);
+            }
         }
+        return invalid;
+    }
 
-        void write(FileWriter writer, int depth) throws IOException
+    /**
+     * Overrides {@code staged} values with the values supplied by each {@link Source}, in order. The staged value from the config file, for each overridden value, is kept in {@code shadowed}, so it can be written instead of the override.
+     *
+     * @param invalid The ordinals of values which were missing or invalid in the config file.
+     * @return The origin of each value.
+     */
+    private String[] override(Object[] staged, BitSet invalid, Object[] shadowed, Diagnostics diagnostics)
+    {
+        final String[] origins = new String[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            origins[i] = invalid.get(i) ? Source.DEFAULT : Source.FILE;
+        }
+        for (final Source source : sources)
         {
-            final String prefix = "    ".repeat(depth);
-            for (final Map.Entry<String, TypedValue<?, ?, ?>> entry : values.entrySet())
+            for (int i = 0; i < values.length; i++)
             {
-                final TypedValue<?, ?, ?> typed = entry.getValue();
-                if (typed.comment() != null)
+                final Object raw = source.get(values[i].longName());
+                if (raw != null)
                 {
-                    for (final String line : typed.comment())
+                    final Object value = values[i].stage(raw, source.name(), diagnostics);
+                    if (value != null)
                     {
-                        writer.write("%s# %s\n".formatted(prefix, line));
+                        if (shadowed[i] == null) shadowed[i] = staged[i];
+                        staged[i] = value;
+                        origins[i] = source.name();
                     }
                 }
-                writer.write("%s%s = %s\n\n".formatted(prefix, typed.name(), typed.write()));
             }
+        }
+        return origins;
+    }
 
-            for (final Node value : children.values())
+    /**
+     * Publishes a complete set of staged values, in the same order as {@link #values}, along with where each was loaded from. Only values whose content changed are set.
+     * Values are set one at a time, under the write lock, so only readers using {@link #read(Supplier)} are guaranteed a consistent view across values.
+     * Once all values are published, listeners for any values which changed are notified, outside the lock. A listener which cannot be notified is reported to {@code diagnostics}, and does not prevent other listeners from being notified.
+     */
+    private void publish(Object[] staged, String[] origins, Object[] shadowed, Diagnostics diagnostics)
+    {
+        final BitSet changed = new BitSet();
+        final long stamp = lock.writeLock();
+        try
+        {
+            publisher = Thread.currentThread();
+            for (int i = 0; i < values.length; i++)
             {
-                writer.write("\n");
-                if (value.comment() != null)
+                if (values[i].publish(staged[i]))
                 {
-                    for (final String line : value.comment())
-                    {
-                        writer.write("%s# %s\n".formatted(prefix, line));
-                    }
+                    changed.set(i);
+                }
+            }
+            this.origins = origins;
+            this.shadowed = shadowed;
+            generation++;
+        }
+        finally
+        {
+            publisher = null;
+            lock.unlockWrite(stamp);
+        }
+
+        if (!changed.isEmpty())
+        {
+            for (final Listener listener : listeners)
+            {
+                listener.notify(changed, diagnostics);
+            }
+        }
+    }
+
+    /**
+     * A listener for changes to values with ordinals in {@code [start, end)}. Values in a category, including child categories, are always contiguous, as they are ordered as they appear in the tree.
+     *
+     * @param name The full name of the value, or category, which is listened to.
+     */
+    record Listener(String name, int start, int end, Executor executor, Runnable action, AtomicBoolean pending)
+    {
+        Listener(String name, int start, int end, Executor executor, Runnable action)
+        {
+            this(name, start, end, executor, action, new AtomicBoolean());
+        }
+
+        void notify(BitSet changed, Diagnostics diagnostics)
+        {
+            final int next = changed.nextSetBit(start);
+            if (next != -1 && next < end && pending.compareAndSet(false, true))
+            {
+                try
+                {
+                    executor.execute(this::run);
+                }
+                catch (RuntimeException e)
+                {
+                    // i.e. the executor was shut down, so this listener will be notified again on the next change
+                    pending.set(false);
+                    diagnostics.report(Diagnostic.Kind.LISTENER, name, e);
                 }
-                writer.write("%s[%s]\n\n".formatted(prefix, value.name));
-                value.write(writer, depth + 1);
             }
         }
 
-        void parse(Map<String, Object> map, Consumer<String> error)
+        private void run()
+        {
+            pending.set(false); // Cleared first, so a change during the action is not lost
+            action.run();
+        }
+    }
+
+    record Node(String name, @Nullable String[] comment, List<Node> children, List<TypedValue<?, ?, ?>> values)
+    {
+        private static final String[] INDENTS = {"", "    ", "        ", "            ", "                ", "                    ", "                        ", "                            "};
+
+        Node(String name, @Nullable String[] comment)
+        {
+            this(name, comment, new ArrayList<>(), new ArrayList<>());
+        }
+
+        /**
+         * Writes this category, and all child categories, at the given {@code depth}.
+         *
+         * @param ordinal The ordinal of the first value in this category.
+         * @param shadowed Values to write instead of the current value, by ordinal, where present.
+         * @return The ordinal of the first value after this category and all child categories.
+         */
+        int write(Appendable output, int depth, int ordinal, Object[] shadowed) throws IOException
+        {
+            final String prefix = indent(depth);
+            for (final TypedValue<?, ?, ?> typed : values)
+            {
+                writeComment(output, prefix, typed.comment());
+                output.append(prefix).append(typed.name()).append(" = ");
+                write(output, typed, shadowed[ordinal++]);
+                output.append("\n\n");
+            }
+
+            for (final Node value : children)
+            {
+                output.append('\n');
+                writeComment(output, prefix, value.comment());
+                output.append(prefix).append('[').append(value.name).append("]\n\n");
+                ordinal = value.write(output, depth + 1, ordinal, shadowed);
+            }
+            return ordinal;
+        }
+
+        private static void write(Appendable output, TypedValue<?, ?, ?> typed, @Nullable Object shadowed) throws IOException
         {
-            for (final TypedValue<?, ?, ?> typed : values.values())
+            if (shadowed != null) typed.write(shadowed, output);
+            else typed.write(output);
+        }
+
+        private static void writeComment(Appendable output, String prefix, @Nullable String[] comment) throws IOException
+        {
+            if (comment != null)
             {
-                final Object value = map.get(typed.longName());
-                if (value != null)
+                for (final String line : comment)
                 {
-                    typed.parse(value, error);
+                    output.append(prefix).append("# ").append(line).append('\n');
+                }
+            }
+        }
+
+        private static String indent(int depth)
+        {
+            return depth < INDENTS.length ? INDENTS[depth] : "    ".repeat(depth);
+        }
+
+        /**
+         * Adds edits to {@code patch} for all invalid values in this category, and all child categories, at the given {@code depth}.
+         *
+         * @param ordinal The ordinal of the first value in this category.
+         * @return The ordinal of the first value after this category and all child categories.
+         */
+        int patch(Patch patch, int depth, int ordinal) throws IOException
+        {
+            final String prefix = indent(depth);
+            StringBuilder missing = null;
+            for (final TypedValue<?, ?, ?> typed : values)
+            {
+                if (patch.invalid.get(ordinal))
+                {
+                    final TomlUtil.Span span = patch.locations.values.get(typed.longName());
+                    if (span != null)
+                    {
+                        final StringBuilder value = new StringBuilder();
+                        write(value, typed, patch.shadowed[ordinal]);
+                        patch.replace(span.start(), span.end(), value);
+                    }
+                    else
+                    {
+                        if (missing == null) missing = new StringBuilder();
+                        missing.append('\n');
+                        writeComment(missing, prefix, typed.comment());
+                        missing.append(prefix).append(typed.name()).append(" = ");
+                        write(missing, typed, patch.shadowed[ordinal]);
+                        missing.append('\n');
+                    }
+                }
+                ordinal++;
+            }
+
+            if (missing != null)
+            {
+                final Integer end = patch.locations.categories.get(name);
+                if (end != null)
+                {
+                    patch.insertAfterLine(end, missing);
+                }
+                else if (name.isEmpty())
+                {
+                    // No root keys, so insert them before the first category, with the blank line after instead of before each key
+                    patch.replace(0, 0, missing.deleteCharAt(0).append('\n'));
                 }
                 else
                 {
-                    error.accept("Missing value for: '%s'".formatted(typed.longName()));
+                    final String headerPrefix = indent(depth - 1);
+                    patch.appended.append('\n');
+                    writeComment(patch.appended, headerPrefix, comment);
+                    patch.appended.append(headerPrefix).append('[').append(name).append("]\n").append(missing);
                 }
             }
-            for (final Node value : children.values())
+
+            for (final Node value : children)
             {
-                value.parse(map, error);
+                ordinal = value.patch(patch, depth + 1, ordinal);
             }
+            return ordinal;
         }
 
-        void reset()
+        /**
+         * Collects all names which may appear in a config for this category and all child categories, which are the name of each value, and the full name and last part of the name of each category.
+         */
+        Set<String> names(Set<String> names)
         {
-            for (final TypedValue<?, ?, ?> value : values.values())
+            for (final TypedValue<?, ?, ?> typed : values)
+            {
+                names.add(typed.name());
+            }
+            for (final Node value : children)
             {
-                value.reset();
+                names.add(value.name);
+                names.add(value.name.substring(value.name.lastIndexOf('.') + 1));
+                value.names(names);
             }
-            for (final Node value : children.values())
+            return names;
+        }
+
+        void collect(List<TypedValue<?, ?, ?>> list)
+        {
+            list.addAll(values);
+            for (final Node value : children)
             {
-                value.reset();
+                value.collect(list);
             }
         }
     }
 
-    static class Builder implements SpecBuilder
+    /**
+     * A set of edits to a config text, which are applied in order of position, along with any text to be appended to the end.
+     */
+    static final class Patch
     {
-        private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z][A-Za-z0-9-_]*");
+        final String text;
+        final TomlUtil.Locations locations;
+        final BitSet invalid;
+        final Object[] shadowed;
+        final List<Edit> edits = new ArrayList<>();
+        final StringBuilder appended = new StringBuilder();
+
+        Patch(String text, TomlUtil.Locations locations, BitSet invalid, Object[] shadowed)
+        {
+            this.text = text;
+            this.locations = locations;
+            this.invalid = invalid;
+            this.shadowed = shadowed;
+        }
 
+        void replace(int start, int end, CharSequence replacement)
+        {
+            edits.add(new Edit(start, end, replacement));
+        }
+
+        /**
+         * Inserts {@code insertion} at the start of the line following {@code index}, or at the end of the text, if there is no following line.
+         */
+        void insertAfterLine(int index, CharSequence insertion)
+        {
+            final int newline = text.indexOf('\n', index);
+            if (newline == -1)
+            {
+                replace(text.length(), text.length(), "\n" + insertion);
+            }
+            else
+            {
+                replace(newline + 1, newline + 1, insertion);
+            }
+        }
+
+        String apply()
+        {
+            edits.sort(Comparator.comparingInt(Edit::start)); // Stable, so insertions at the same position stay in spec order
+            final StringBuilder output = new StringBuilder(text.length() + appended.length() + 16 * edits.size());
+            int index = 0;
+            for (final Edit edit : edits)
+            {
+                output.append(text, index, edit.start()).append(edit.replacement());
+                index = edit.end();
+            }
+            output.append(text, index, text.length());
+            if (!appended.isEmpty())
+            {
+                if (!output.isEmpty() && output.charAt(output.length() - 1) != '\n')
+                {
+                    output.append('\n');
+                }
+                output.append(appended);
+            }
+            return output.toString();
+        }
+
+        record Edit(int start, int end, CharSequence replacement) {}
+    }
+
+    static class Builder implements SpecBuilder
+    {
         private final List<Node> stack;
-        private String[] comment;
+        private final Set<String> names;
+        private final List<String> comment;
+        private int size;
 
-        Builder()
+        Builder(int expectedValues)
         {
             this.stack = new ArrayList<>();
             this.stack.add(new Node("", null));
-            this.comment = null;
+            this.names = new HashSet<>(Math.max(16, (int) (expectedValues / 0.75f) + 1));
+            this.comment = new ArrayList<>();
+            this.size = 0;
         }
 
         @Override
@@ -143,12 +801,12 @@ public final class Spec
         {
             final Node top = peek();
             Preconditions.checkArgument(!name.isEmpty(), "Name is not allowed to be empty.");
-            Preconditions.checkArgument(!top.containsKey(name), "Name '" + name + "' is already defined.");
-            Preconditions.checkArgument(NAME_PATTERN.matcher(name).matches(), "Name must match the pattern [A-Za-z][A-Za-z0-9-_]*");
-            final Node node = new Node(top.name.isEmpty() ? name : top.name + "." + name, comment);
-            top.children.put(name, node);
+            Preconditions.checkArgument(isValidName(name), "Name must match the pattern [A-Za-z][A-Za-z0-9-_]*");
+            final String longName = top.name.isEmpty() ? name : top.name + "." + name;
+            Preconditions.checkArgument(names.add(longName), "Name '%s' is already defined.", name);
+            final Node node = new Node(longName, takeComment());
+            top.children.add(node);
             stack.add(node);
-            this.comment = null;
             return this;
         }
 
@@ -163,20 +821,20 @@ public final class Spec
         @Override
         public SpecBuilder comment(String... comment)
         {
-            this.comment = this.comment == null ? comment : ArrayUtils.addAll(this.comment, comment);
+            Collections.addAll(this.comment, comment);
             return this;
         }
 
         @Override
         public <T, U, V extends Value<U>> V define(String name, U defaultValue, ValueConverter<T, U, V> converter)
         {
-            Preconditions.checkArgument(NAME_PATTERN.matcher(name).matches(), "Name must match the pattern [A-Za-z][A-Za-z0-9-_]*");
-            Preconditions.checkArgument(!peek().containsKey(name), "Name '" + name + "' is already defined.");
-            final V value = converter.create(defaultValue);
+            Preconditions.checkArgument(isValidName(name), "Name must match the pattern [A-Za-z][A-Za-z0-9-_]*");
             final String longName = stack.size() <= 1 ? name : peek().name + "." + name;
-            peek().values.put(name, new TypedValue<>(name, longName, comment, value, defaultValue, converter));
+            Preconditions.checkArgument(names.add(longName), "Name '%s' is already defined.", name);
+            final V value = converter.create(defaultValue);
+            peek().values.add(new TypedValue<>(name, longName, takeComment(), value, defaultValue, converter));
             value.set(defaultValue);
-            this.comment = null;
+            size++;
             return value;
         }
 
@@ -184,12 +842,42 @@ public final class Spec
         public Spec build()
         {
             Preconditions.checkArgument(stack.size() == 1, "Unclosed categories in stack.");
-            return new Spec(peek());
+            final List<TypedValue<?, ?, ?>> values = new ArrayList<>(size);
+            peek().collect(values);
+            return new Spec(peek(), values.toArray(TypedValue[]::new));
         }
 
         private Node peek()
         {
             return stack.get(stack.size() - 1);
         }
+
+        @Nullable
+        private String[] takeComment()
+        {
+            if (comment.isEmpty()) return null;
+            final String[] lines = comment.toArray(String[]::new);
+            comment.clear();
+            return lines;
+        }
+
+        /**
+         * Equivalent to matching {@code [A-Za-z][A-Za-z0-9-_]*}, without a regex.
+         */
+        private static boolean isValidName(String name)
+        {
+            if (name.isEmpty() || !isLetter(name.charAt(0))) return false;
+            for (int i = 1; i < name.length(); i++)
+            {
+                final char c = name.charAt(i);
+                if (!isLetter(c) && (c < '0' || c > '9') && c != '-' && c != '_') return false;
+            }
+            return true;
+        }
+
+        private static boolean isLetter(char c)
+        {
+            return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+        }
     }
 }
@@ -6,9 +6,14 @@ import java.util.List;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import com.alcatrazescapee.epsilon.value.BoolListValue;
 import com.alcatrazescapee.epsilon.value.BoolValue;
+import com.alcatrazescapee.epsilon.value.DoubleValue;
+import com.alcatrazescapee.epsilon.value.FloatListValue;
 import com.alcatrazescapee.epsilon.value.FloatValue;
+import com.alcatrazescapee.epsilon.value.IntListValue;
 import com.alcatrazescapee.epsilon.value.IntValue;
+import com.alcatrazescapee.epsilon.value.LongValue;
 import com.alcatrazescapee.epsilon.value.TypeValue;
 import com.alcatrazescapee.epsilon.value.Value;
 
@@ -63,7 +68,23 @@ public interface SpecBuilder
      */
     default IntValue define(String name, int defaultValue, int minValue, int maxValue)
     {
-        return comment("Range: [%d, %d]".formatted(minValue, maxValue)).define(name, defaultValue, ValueConverter.forRange(minValue, maxValue));
+        return comment("Range: [" + minValue + ", " + maxValue + "]").define(name, defaultValue, ValueConverter.forRange(minValue, maxValue));
+    }
+
+    /**
+     * Define an unrestricted long value with the name {@code name} and a default value of {@code defaultValue}.
+     */
+    default LongValue define(String name, long defaultValue)
+    {
+        return define(name, defaultValue, ValueConverter.LONG);
+    }
+
+    /**
+     * Define a long value which must take values in the inclusive range {@code [minValue, maxValue]} with the name {@code name} and a default value of {@code defaultValue}.
+     */
+    default LongValue define(String name, long defaultValue, long minValue, long maxValue)
+    {
+        return comment("Range: [" + minValue + ", " + maxValue + "]").define(name, defaultValue, ValueConverter.forRange(minValue, maxValue));
     }
 
     /**
@@ -79,7 +100,23 @@ public interface SpecBuilder
      */
     default FloatValue define(String name, float defaultValue, float minValue, float maxValue)
     {
-        return comment("Range: [%s, %s]".formatted(minValue, maxValue)).define(name, defaultValue, ValueConverter.forRange(minValue, maxValue));
+        return comment("Range: [" + minValue + ", " + maxValue + "]").define(name, defaultValue, ValueConverter.forRange(minValue, maxValue));
+    }
+
+    /**
+     * Define an unrestricted double value with the name {@code name} and a default value of {@code defaultValue}.
+     */
+    default DoubleValue define(String name, double defaultValue)
+    {
+        return define(name, defaultValue, ValueConverter.DOUBLE);
+    }
+
+    /**
+     * Define a double value which must take values in the inclusive range {@code [minValue, maxValue]} with the name {@code name} and a default value of {@code defaultValue}.
+     */
+    default DoubleValue define(String name, double defaultValue, double minValue, double maxValue)
+    {
+        return comment("Range: [" + minValue + ", " + maxValue + "]").define(name, defaultValue, ValueConverter.forRange(minValue, maxValue));
     }
 
     /**
@@ -116,6 +153,30 @@ public interface SpecBuilder
         return define(name, defaultValue, ValueConverter.STRING_LIST);
     }
 
+    /**
+     * Define an int list value with the name {@code name} and a default value of {@code defaultValue}.
+     */
+    default IntListValue define(String name, int[] defaultValue)
+    {
+        return define(name, defaultValue, ValueConverter.INT_LIST);
+    }
+
+    /**
+     * Define a float list value with the name {@code name} and a default value of {@code defaultValue}.
+     */
+    default FloatListValue define(String name, float[] defaultValue)
+    {
+        return define(name, defaultValue, ValueConverter.FLOAT_LIST);
+    }
+
+    /**
+     * Define a boolean list value with the name {@code name} and a default value of {@code defaultValue}.
+     */
+    default BoolListValue define(String name, boolean[] defaultValue)
+    {
+        return define(name, defaultValue, ValueConverter.BOOL_LIST);
+    }
+
     /**
      * Define an enum value with the name {@code name} and a default value of {@code defaultValue}.
      */
@@ -0,0 +1,69 @@
+package com.alcatrazescapee.epsilon;
+
+import java.util.Collection;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A fixed, open addressed table of canonical names, seeded from the key and category names in a {@link Spec}. This lets the scanner resolve a name directly from a range of the config text to its canonical instance, without allocating a substring.
+ * The table is never modified after construction, so it can be shared by concurrent parses.
+ */
+final class Symbols
+{
+    private final String[] symbols;
+    private final int[] hashes;
+    private final int mask;
+
+    Symbols(Collection<String> names)
+    {
+        // Power of two capacity, with a load factor of at most 0.5
+        final int capacity = Integer.highestOneBit(Math.max(names.size(), 1) * 4 - 1);
+
+        this.symbols = new String[capacity];
+        this.hashes = new int[capacity];
+        this.mask = capacity - 1;
+
+        for (final String name : names)
+        {
+            final int hash = name.hashCode();
+            int slot = spread(hash) & mask;
+            String found;
+            while ((found = symbols[slot]) != null && !found.equals(name))
+            {
+                slot = (slot + 1) & mask;
+            }
+            symbols[slot] = name;
+            hashes[slot] = hash;
+        }
+    }
+
+    /**
+     * @return The canonical name equal to {@code text} in the range {@code [start, end)}, or {@code null} if there is no such name.
+     */
+    @Nullable
+    String find(String text, int start, int end)
+    {
+        int hash = 0;
+        for (int i = start; i < end; i++)
+        {
+            hash = 31 * hash + text.charAt(i);
+        }
+
+        final int length = end - start;
+        int slot = spread(hash) & mask;
+        String found;
+        while ((found = symbols[slot]) != null)
+        {
+            if (hashes[slot] == hash && found.length() == length && text.regionMatches(start, found, 0, length))
+            {
+                return found;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private static int spread(int hash)
+    {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -1,9 +1,14 @@
 package com.alcatrazescapee.epsilon;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import com.google.common.base.Preconditions;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.jetbrains.annotations.Nullable;
 
@@ -11,29 +16,376 @@ public final class TomlUtil
 {
     public static TomlParseResult parse(String text)
     {
+        final MapVisitor visitor = new MapVisitor();
+        final boolean errors = parse(text, visitor);
+        return new TomlParseResult(visitor.values, errors);
+    }
+
+    /**
+     * Parses {@code text}, reporting each element to the {@code visitor} as it is encountered, without building any intermediate representation.
+     *
+     * @return {@code true} if any errors were encountered during parsing.
+     */
+    public static boolean parse(String text, Visitor visitor)
+    {
+        return parse(text, visitor, Limits.DEFAULT);
+    }
+
+    /**
+     * Parses {@code text}, as with {@link #parse(String, Visitor)}, resolving names through {@code symbols} where possible, so names already known to the table are reported as their canonical instance, without allocating.
+     */
+    static boolean parse(String text, Visitor visitor, @Nullable Symbols symbols)
+    {
+        return parse(text, visitor, symbols, null);
+    }
+
+    /**
+     * Parses {@code text}, as with {@link #parse(String, Visitor, Symbols)}, recording the number of tokens scanned in {@code trace}.
+     */
+    static boolean parse(String text, Visitor visitor, @Nullable Symbols symbols, @Nullable LoadTrace trace)
+    {
+        return parse(text, visitor, symbols, trace, Limits.DEFAULT);
+    }
+
+    /**
+     * Parses {@code text}, as with {@link #parse(String, Visitor)}, stopping with an error as soon as any of the {@code limits} are exceeded.
+     */
+    public static boolean parse(String text, Visitor visitor, Limits limits)
+    {
+        return parse(text, visitor, null, null, limits);
+    }
+
+    /**
+     * Parses {@code text}, as with {@link #parse(String, Visitor, Symbols, LoadTrace)}, within the given {@code limits}.
+     */
+    static boolean parse(String text, Visitor visitor, @Nullable Symbols symbols, @Nullable LoadTrace trace, Limits limits)
+    {
+        if (text.length() > limits.maxLength())
+        {
+            return true;
+        }
+
         final Scanner scanner = new Scanner(text);
-        final Parser parser = new Parser(scanner.outputs);
+        scanner.symbols = symbols;
+        scanner.limits = limits;
+        final Parser parser = new Parser(scanner, visitor);
 
-        scanner.scan();
         parser.parse();
 
-        return new TomlParseResult(parser.values, scanner.error || parser.error);
+        if (trace != null)
+        {
+            trace.tokens += scanner.tokens;
+        }
+        return scanner.error || parser.error;
+    }
+
+    /**
+     * Parses {@code text} as a single config value, i.e. {@code 5}, {@code true}, or {@code [1, 2]}, as would appear after the {@code =} of a key-value pair.
+     *
+     * @return The raw config value, or {@code text} itself if it is not a valid config value, or {@code null} if {@code text} is {@code null}.
+     */
+    @Nullable
+    static Object parseValue(@Nullable String text)
+    {
+        if (text == null)
+        {
+            return null;
+        }
+        final Object[] value = new Object[1];
+        final Scanner scanner = new Scanner(text);
+        final Parser parser = new Parser(scanner, new ValueVisitor() {
+            @Override
+            void visitKeyValue(@Nullable String category, String key, Object parsed)
+            {
+                value[0] = parsed;
+            }
+        });
+        return parser.parseValue() && !parser.hasNext() && !scanner.error && value[0] != null ? value[0] : text;
+    }
+
+    /**
+     * Parses {@code text}, recording where each value, and each category, is located in the text, so that individual values can be corrected without rewriting the rest of the text.
+     */
+    static Locations locate(String text)
+    {
+        final Scanner scanner = new Scanner(text);
+        final Locations locations = new Locations();
+        final Parser parser = new Parser(scanner, locations);
+
+        parser.locations = locations;
+        parser.parse();
+
+        return locations;
     }
 
     public record TomlParseResult(Map<String, Object> map, boolean errors) {}
 
-    sealed interface Token permits
-        TLiteral,
-        TString,
-        TName,
-        TInt,
-        TFloat,
-        TList
+    /**
+     * Bounds on the input accepted by the parser, for configs which are not trusted. Parsing is linear in the length of the text regardless, these bound the total time and memory spent on a single text.
+     * Exceeding any limit stops parsing immediately, and is reported as a parse error.
+     *
+     * @param maxLength The maximum length of the text, in characters.
+     * @param maxDepth The maximum depth of nested lists, i.e. {@code [[1]]} has a depth of two.
+     * @param maxTokens The maximum number of tokens in the text.
+     * @param includes If {@code include "path"} directives are followed. If not, an include directive is a parse error.
+     */
+    public record Limits(int maxLength, int maxDepth, int maxTokens, boolean includes)
     {
-        Object value();
+        /** No limits on length or tokens, a depth well beyond that of any real config, and includes are followed. */
+        public static final Limits DEFAULT = new Limits(Integer.MAX_VALUE, 256, Integer.MAX_VALUE, true);
+
+        public Limits
+        {
+            Preconditions.checkArgument(maxLength >= 0 && maxDepth >= 0 && maxTokens >= 0, "Limits must not be negative.");
+        }
+
+        /**
+         * Limits for a config which is not trusted, which may not include any other files.
+         */
+        public Limits(int maxLength, int maxDepth, int maxTokens)
+        {
+            this(maxLength, maxDepth, maxTokens, false);
+        }
+    }
+
+    /**
+     * A receiver of parse events from {@link #parse(String, Visitor)}. Events are reported in the order they appear in the text.
+     * A key-value pair is reported as a call to {@link #visitKey(String)}, followed by either a single value, or a list of values, which is bracketed by {@link #visitListStart()} and {@link #visitListEnd()}, and may be nested.
+     */
+    public interface Visitor
+    {
+        /**
+         * Called when a category header is encountered. All keys following this are within this category, until the next category.
+         * @param category The full name of the category, i.e. {@code foo.bar}
+         */
+        default void visitCategory(String category) {}
+
+        /**
+         * Called when a key is encountered, which is followed by the events for its value.
+         * @param key The name of the key, not including the category.
+         */
+        default void visitKey(String key) {}
+
+        /**
+         * Called when an {@code include "path"} directive is encountered. Includes are only allowed before the first category.
+         * @param path The path of the included file, as written.
+         */
+        default void visitInclude(String path) {}
+
+        default void visitInt(int value) {}
+        default void visitLong(long value) {}
+        default void visitFloat(float value) {}
+        default void visitDouble(double value) {}
+        default void visitBool(boolean value) {}
+        default void visitString(String value) {}
+        default void visitListStart() {}
+        default void visitListEnd() {}
+
+        /**
+         * Called if the value for the last key was invalid. Any events received since the last {@link #visitKey(String)} should be discarded.
+         */
+        default void visitInvalidValue() {}
+    }
+
+    /**
+     * A consumer of parse events which assembles complete values, including lists, and reports each key-value pair by its category and key.
+     */
+    abstract static class ValueVisitor implements Visitor
+    {
+        final List<RawList> lists = new ArrayList<>();
+
+        @Nullable String category;
+        @Nullable String key;
+
+        /**
+         * @param category The full name of the category, or {@code null} for keys before the first category.
+         * @param key The name of the key, not including the category.
+         */
+        abstract void visitKeyValue(@Nullable String category, String key, Object value);
+
+        @Override public void visitCategory(String category) { this.category = category; }
+        @Override public void visitKey(String key) { this.key = key; }
+        @Override public void visitLong(long value) { visitValue(value); }
+        @Override public void visitDouble(double value) { visitValue(value); }
+        @Override public void visitString(String value) { visitValue(value); }
+        @Override public void visitListStart() { lists.add(new RawList()); }
+        @Override public void visitListEnd() { visitValue(lists.remove(lists.size() - 1)); }
+        @Override public void visitInvalidValue() { lists.clear(); }
+
+        @Override
+        public void visitInt(int value)
+        {
+            if (lists.isEmpty()) visitKeyValue(category, key, value);
+            else lists.get(lists.size() - 1).addInt(value);
+        }
+
+        @Override
+        public void visitFloat(float value)
+        {
+            if (lists.isEmpty()) visitKeyValue(category, key, value);
+            else lists.get(lists.size() - 1).addFloat(value);
+        }
+
+        @Override
+        public void visitBool(boolean value)
+        {
+            if (lists.isEmpty()) visitKeyValue(category, key, value);
+            else lists.get(lists.size() - 1).addBool(value);
+        }
+
+        void visitValue(Object value)
+        {
+            if (lists.isEmpty())
+            {
+                visitKeyValue(category, key, value);
+            }
+            else
+            {
+                lists.get(lists.size() - 1).add(value);
+            }
+        }
     }
 
-    enum TLiteral implements Token
+    /**
+     * A list of raw config values. Lists where every element is an {@code int}, {@code float}, or {@code boolean} are stored in a primitive array, so they can be converted to a primitive list value without boxing. Any other list is stored as objects.
+     * Elements are boxed when read through the {@link List} interface, so this can be used in place of any other list of raw config values.
+     */
+    static final class RawList extends AbstractList<Object> implements RandomAccess
+    {
+        static final int EMPTY = 0, INT = 1, FLOAT = 2, BOOL = 3, OBJECT = 4;
+
+        int kind = EMPTY;
+        int size;
+        int[] ints;
+        float[] floats;
+        boolean[] bools;
+        Object[] objects;
+
+        void addInt(int value)
+        {
+            if (kind == INT || kind == EMPTY && init(INT))
+            {
+                if (size == ints.length) ints = Arrays.copyOf(ints, size * 2);
+                ints[size++] = value;
+            }
+            else add(value);
+        }
+
+        void addFloat(float value)
+        {
+            if (kind == FLOAT || kind == EMPTY && init(FLOAT))
+            {
+                if (size == floats.length) floats = Arrays.copyOf(floats, size * 2);
+                floats[size++] = value;
+            }
+            else add(value);
+        }
+
+        void addBool(boolean value)
+        {
+            if (kind == BOOL || kind == EMPTY && init(BOOL))
+            {
+                if (size == bools.length) bools = Arrays.copyOf(bools, size * 2);
+                bools[size++] = value;
+            }
+            else add(value);
+        }
+
+        @Override
+        public boolean add(Object value)
+        {
+            if (kind != OBJECT)
+            {
+                // Box any existing primitive elements, as this list is no longer of a single primitive kind
+                final Object[] boxed = new Object[Math.max(8, size * 2)];
+                for (int i = 0; i < size; i++) boxed[i] = get(i);
+                objects = boxed;
+                ints = null;
+                floats = null;
+                bools = null;
+                kind = OBJECT;
+            }
+            if (size == objects.length) objects = Arrays.copyOf(objects, size * 2);
+            objects[size++] = value;
+            return true;
+        }
+
+        @Override
+        public Object get(int index)
+        {
+            Objects.checkIndex(index, size);
+            return switch (kind)
+            {
+                case INT -> ints[index];
+                case FLOAT -> floats[index];
+                case BOOL -> bools[index];
+                default -> objects[index];
+            };
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        private boolean init(int kind)
+        {
+            this.kind = kind;
+            switch (kind)
+            {
+                case INT -> ints = new int[8];
+                case FLOAT -> floats = new float[8];
+                case BOOL -> bools = new boolean[8];
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The default consumer of parse events, which collects all values into a flat map of full key names to values.
+     */
+    static final class MapVisitor extends ValueVisitor
+    {
+        final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        void visitKeyValue(@Nullable String category, String key, Object value)
+        {
+            values.put(category == null ? key : category + "." + key, value);
+        }
+    }
+
+    /**
+     * The locations of each value, and category, within a config text.
+     * {@link #values} maps each full key name to the span of its value, from the start of the first token to the end of the last token. {@link #categories} maps each category, where the root category is {@code ""}, to the end of its last header or key-value pair.
+     */
+    static final class Locations implements Visitor
+    {
+        final Map<String, Span> values = new HashMap<>();
+        final Map<String, Integer> categories = new HashMap<>();
+
+        String category = "";
+        @Nullable String key;
+
+        @Override public void visitCategory(String category) { this.category = category; }
+        @Override public void visitKey(String key) { this.key = category.isEmpty() ? key : category + "." + key; }
+
+        void visitHeaderEnd(int end)
+        {
+            categories.put(category, end);
+        }
+
+        void visitValueSpan(int start, int end)
+        {
+            values.put(key, new Span(start, end));
+            categories.put(category, end);
+        }
+    }
+
+    record Span(int start, int end) {}
+
+    enum Token
     {
         DOT,
         COMMA,
@@ -42,114 +394,407 @@ public final class TomlUtil
         RIGHT_BRACKET,
         TRUE,
         FALSE,
-        INVALID;
-
-        @Override
-        public Object value()
-        {
-            return this == TRUE ? true : (this == FALSE ? false : this);
-        }
+        STRING,
+        NAME,
+        INT,
+        LONG,
+        FLOAT,
+        DOUBLE,
+        INVALID,
+        EOF
     }
 
-    record TString(String value) implements Token {}
-    record TName(String value) implements Token {}
-    record TInt(Integer value) implements Token {}
-    record TFloat(Float value) implements Token {}
-    record TList(List<Token> value) implements Token {}
-
+    /**
+     * A pull based scanner, which is driven one token at a time by the {@link Parser}. The current token is held in {@link #token}, and any value associated with it is held in the matching field, until the next call to {@link #advance()}.
+     */
     final static class Scanner
     {
-        final List<Token> outputs;
+        /**
+         * The number of significant decimal digits which are guaranteed to be preserved by a {@code float}.
+         */
+        static final int FLOAT_DIGITS = 6;
+        static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+        };
 
         final String text;
 
         int index;
+        int tokens;
         boolean error;
 
+        @Nullable Symbols symbols;
+        Limits limits = Limits.DEFAULT;
+
+        Token token;
+        int tokenStart;
+        @Nullable String string;
+        int intValue;
+        long longValue;
+        float floatValue;
+        double doubleValue;
+
         Scanner(String text)
         {
-            this.outputs = new ArrayList<>();
             this.text = text;
             this.index = 0;
             this.error = false;
+            this.token = Token.EOF;
+            this.string = null;
         }
 
-        void scan()
+        void advance()
         {
+            if (tokens >= limits.maxTokens())
+            {
+                // Only whitespace and comments may follow the last token
+                skipWhitespaceAndComments();
+                error |= hasNext();
+                stop();
+                return;
+            }
             while (hasNext())
             {
-                final char c = next();
-                switch (c)
+                tokenStart = index;
+                final Token t = scan(next());
+                if (t != null)
                 {
-                    case ' ', '\t', '\r', '\n' -> {}
-                    case '[' -> push(TLiteral.LEFT_BRACKET);
-                    case ']' -> push(TLiteral.RIGHT_BRACKET);
-                    case '=' -> push(TLiteral.EQUALS);
-                    case '.' -> push(TLiteral.DOT);
-                    case ',' -> push(TLiteral.COMMA);
-                    case '"' -> scanString();
+                    token = t;
+                    tokens++;
+                    return;
+                }
+            }
+            token = Token.EOF;
+        }
+
+        /**
+         * Stops scanning entirely, so the parser sees the end of the text.
+         */
+        void stop()
+        {
+            index = text.length();
+            token = Token.EOF;
+        }
+
+        void skipWhitespaceAndComments()
+        {
+            while (hasNext())
+            {
+                switch (peek())
+                {
+                    case ' ', '\t', '\r', '\n' -> next();
                     case '#' -> scanComment();
                     default ->
                     {
-                        if (isNumberPrefix(c))
+                        return;
+                    }
+                }
+            }
+        }
+
+        @Nullable
+        Token scan(char c)
+        {
+            return switch (c)
+            {
+                case ' ', '\t', '\r', '\n' -> null;
+                case '[' -> Token.LEFT_BRACKET;
+                case ']' -> Token.RIGHT_BRACKET;
+                case '=' -> Token.EQUALS;
+                case '.' -> Token.DOT;
+                case ',' -> Token.COMMA;
+                case '"' -> scanString();
+                case '#' -> scanComment();
+                default ->
+                {
+                    if (isNumberPrefix(c))
+                    {
+                        yield scanNumber();
+                    }
+                    else if (isNamePrefix(c))
+                    {
+                        yield scanName();
+                    }
+                    error = true;
+                    yield null;
+                }
+            };
+        }
+
+        Token scanString()
+        {
+            final int start = index;
+            boolean escaped = false;
+            while (hasNext() && peek() != '"')
+            {
+                if (next() == '\\')
+                {
+                    escaped = true;
+                    if (hasNext()) next();
+                }
+            }
+            string = escaped ? unescape(start, index) : text.substring(start, index);
+            if (hasNext())
+            {
+                next(); // Consume "
+            }
+            else
+            {
+                error = true; // Unterminated
+            }
+            return Token.STRING;
+        }
+
+        /**
+         * Unescapes the string in {@code [start, end)} in a single pass, with the same result as {@link StringEscapeUtils#unescapeJava(String)}. Accepts all escapes written by {@link StringEscapeUtils#escapeJava(String)}, along with {@code \'} and octal escapes. Any other escape drops the backslash, i.e. {@code \q} is {@code q}, and a malformed unicode escape is an error.
+         */
+        String unescape(int start, int end)
+        {
+            final StringBuilder builder = new StringBuilder(end - start);
+            int i = start;
+            while (i < end)
+            {
+                final char c = text.charAt(i++);
+                if (c != '\\')
+                {
+                    builder.append(c);
+                    continue;
+                }
+                if (i == end)
+                {
+                    break; // A trailing backslash, in an unterminated string
+                }
+                final char e = text.charAt(i++);
+                switch (e)
+                {
+                    case 'b' -> builder.append('\b');
+                    case 't' -> builder.append('\t');
+                    case 'n' -> builder.append('\n');
+                    case 'f' -> builder.append('\f');
+                    case 'r' -> builder.append('\r');
+                    case '"', '\'', '\\' -> builder.append(e);
+                    case 'u' ->
+                    {
+                        while (i < end && text.charAt(i) == 'u') i++;
+                        if (i < end && text.charAt(i) == '+') i++;
+                        int value = 0;
+                        for (int j = 0; j < 4; j++)
                         {
-                            scanNumber();
+                            final int digit = i < end ? Character.digit(text.charAt(i), 16) : -1;
+                            if (digit == -1)
+                            {
+                                error = true;
+                                break;
+                            }
+                            value = value * 16 + digit;
+                            i++;
                         }
-                        else if (isNamePrefix(c))
+                        builder.append((char) value);
+                    }
+                    default ->
+                    {
+                        if (e >= '0' && e <= '7')
                         {
-                            scanName();
+                            // Up to three octal digits, with a maximum value of \377
+                            int value = e - '0';
+                            final int digits = e <= '3' ? 2 : 1;
+                            for (int j = 0; j < digits && i < end && text.charAt(i) >= '0' && text.charAt(i) <= '7'; j++)
+                            {
+                                value = value * 8 + text.charAt(i++) - '0';
+                            }
+                            builder.append((char) value);
                         }
                         else
                         {
-                            error = true;
+                            builder.append(e);
                         }
                     }
                 }
             }
+            return builder.toString();
         }
 
-        void scanString()
+        @Nullable
+        Token scanComment()
         {
-            final int start = index;
-            while (hasNext() && peek() != '"')
+            while (hasNext() && peek() != '\n') next();
+            return null;
+        }
+
+        Token scanNumber()
+        {
+            final int start = index - 1;
+            while (isNumber(peek())) next();
+            if ((peek() == 'e' || peek() == 'E') && isExponent(index + 1))
             {
-                if (next() == '\\') next();
+                next();
+                if (peek() == '-' || peek() == '+') next();
+                while (isDigit(peek())) next();
             }
-            push(new TString(StringEscapeUtils.unescapeJava(text.substring(start, index))));
-            next(); // Consume "
+            return parseNumber(start, index);
         }
 
-        void scanComment()
+        /**
+         * Classifies and converts the number in {@code [start, end)} in a single pass, without throwing any exceptions.
+         * Integers are {@link Token#INT} if they fit in an {@code int}, otherwise {@link Token#LONG}. Decimals are {@link Token#FLOAT} if they have at most {@link #FLOAT_DIGITS} significant digits, and are within the range of a {@code float}, otherwise {@link Token#DOUBLE}.
+         */
+        Token parseNumber(int start, int end)
         {
-            while (hasNext() && peek() != '\n') next();
+            int i = start;
+            final boolean negative = text.charAt(i) == '-';
+            if (negative || text.charAt(i) == '+') i++;
+
+            // Integer and fractional digits, which may contain at most one '.'
+            final int digitsStart = i;
+            int dot = -1;
+            int digits = 0;
+            boolean ascii = true;
+            for (; i < end && text.charAt(i) != 'e' && text.charAt(i) != 'E'; i++)
+            {
+                final char c = text.charAt(i);
+                if (c == '.')
+                {
+                    if (dot != -1) return Token.INVALID;
+                    dot = i;
+                }
+                else
+                {
+                    digits++;
+                    ascii &= isDigit(c);
+                }
+            }
+            final int digitsEnd = i;
+            if (digits == 0) return Token.INVALID;
+
+            if (dot == -1 && digitsEnd == end)
+            {
+                // Accumulate negatively, so that Long.MIN_VALUE can be represented
+                long value = 0;
+                boolean overflow = false;
+                for (int j = digitsStart; j < digitsEnd; j++)
+                {
+                    final int digit = Character.digit(text.charAt(j), 10);
+                    if (value < (Long.MIN_VALUE + digit) / 10)
+                    {
+                        overflow = true;
+                        break;
+                    }
+                    value = value * 10 - digit;
+                }
+                if (!overflow && (negative || value != Long.MIN_VALUE))
+                {
+                    longValue = negative ? value : -value;
+                    if (longValue == (int) longValue)
+                    {
+                        intValue = (int) longValue;
+                        return Token.INT;
+                    }
+                    return Token.LONG;
+                }
+            }
+
+            if (!ascii) return Token.INVALID;
+
+            int exponent = 0;
+            if (digitsEnd < end)
+            {
+                // The scanner only includes an exponent if it is well formed
+                i = digitsEnd + 1;
+                final boolean negativeExponent = text.charAt(i) == '-';
+                if (negativeExponent || text.charAt(i) == '+') i++;
+                for (; i < end; i++)
+                {
+                    exponent = Math.min(exponent * 10 + text.charAt(i) - '0', 100_000);
+                }
+                if (negativeExponent) exponent = -exponent;
+            }
+
+            // Find the significant digits, ignoring leading and trailing zeros, and the exponent of the last one
+            int first = digitsStart, last = digitsEnd - 1;
+            while (first < digitsEnd && (text.charAt(first) == '0' || text.charAt(first) == '.')) first++;
+            while (last > first && (text.charAt(last) == '0' || text.charAt(last) == '.')) last--;
+
+            final double value;
+            int significant = 0;
+            if (first == digitsEnd)
+            {
+                value = 0; // All zeros
+            }
+            else
+            {
+                long mantissa = 0;
+                for (int j = first; j <= last; j++)
+                {
+                    final char c = text.charAt(j);
+                    if (c != '.')
+                    {
+                        if (significant < 19) mantissa = mantissa * 10 + (c - '0');
+                        significant++;
+                    }
+                }
+                // The value is mantissa * 10^scale, accounting for fractional digits, and the trailing zeros which were dropped
+                final int fractionDigits = dot == -1 ? 0 : digitsEnd - dot - 1;
+                final int scale = exponent - fractionDigits + countDigits(last + 1, digitsEnd);
+                if (significant <= 15 && scale >= -22 && scale <= 22)
+                {
+                    // Both the mantissa and the power of ten are exactly representable, so a single operation is correctly rounded
+                    value = scale >= 0 ? mantissa * POWERS_OF_TEN[scale] : mantissa / POWERS_OF_TEN[-scale];
+                }
+                else
+                {
+                    // The text has already been validated, so this cannot throw
+                    value = Double.parseDouble(text.substring(digitsStart, end));
+                }
+            }
+
+            doubleValue = negative ? -value : value;
+            floatValue = (float) doubleValue;
+            if (significant <= FLOAT_DIGITS && Float.isFinite(floatValue) && (floatValue != 0 || value == 0))
+            {
+                return Token.FLOAT;
+            }
+            return Token.DOUBLE;
         }
 
-        void scanNumber()
+        int countDigits(int start, int end)
         {
-            final int start = index - 1;
-            while (isNumber(peek())) next();
-            push(parseNumber(text.substring(start, index)));
+            int count = 0;
+            for (int i = start; i < end; i++)
+            {
+                if (text.charAt(i) != '.') count++;
+            }
+            return count;
         }
 
-        Token parseNumber(String value)
+        boolean isExponent(int i)
         {
-            try { return new TInt(Integer.parseInt(value)); }
-            catch (NumberFormatException e) { /* ignored */ }
-            try { return new TFloat(Float.parseFloat(value)); }
-            catch (NumberFormatException e) { /* ignored */ }
-            return TLiteral.INVALID;
+            if (i < text.length() && (text.charAt(i) == '-' || text.charAt(i) == '+')) i++;
+            return i < text.length() && isDigit(text.charAt(i));
         }
 
-        void scanName()
+        Token scanName()
         {
             final int start = index - 1;
             while (isName(peek())) next();
-            final String value = text.substring(start, index);
-            push(switch (value) {
-                case "true" -> TLiteral.TRUE;
-                case "false" -> TLiteral.FALSE;
-                default -> new TName(value);
-            });
+            final int length = index - start;
+            if (length == 4 && text.startsWith("true", start)) return Token.TRUE;
+            if (length == 5 && text.startsWith("false", start)) return Token.FALSE;
+            string = name(start, index);
+            return Token.NAME;
+        }
+
+        /**
+         * @return The name in the range {@code [start, end)}, which is the canonical instance from {@link #symbols} if present.
+         */
+        String name(int start, int end)
+        {
+            if (symbols != null)
+            {
+                final String symbol = symbols.find(text, start, end);
+                if (symbol != null) return symbol;
+            }
+            return text.substring(start, end);
         }
 
         boolean isNamePrefix(char c) { return Character.isLetter(c); }
@@ -157,6 +802,7 @@ public final class TomlUtil
 
         boolean isNumberPrefix(char c) { return c == '-' || c == '+' || isNumber(c); }
         boolean isNumber(char c) { return c == '.' || Character.isDigit(c); }
+        boolean isDigit(char c) { return c >= '0' && c <= '9'; }
 
         boolean hasNext() { return index < text.length(); }
         char peek() { return hasNext() ? text.charAt(index) : '\0'; }
@@ -166,70 +812,103 @@ public final class TomlUtil
             index++;
             return c;
         }
-
-        void push(Token token) { outputs.add(token); }
     }
 
     final static class Parser
     {
-        final List<Token> inputs;
-        final Map<String, Object> values;
+        static final String INCLUDE = "include";
 
-        @Nullable String category;
-        int index;
+        final Scanner scanner;
+        final Visitor visitor;
+
+        @Nullable Locations locations;
         boolean error;
+        boolean inCategory;
+        int end;
 
-        Parser(List<Token> inputs)
+        Parser(Scanner scanner, Visitor visitor)
         {
-            this.inputs = inputs;
-            this.values = new HashMap<>();
-            this.category = null;
-            this.index = 0;
+            this.scanner = scanner;
+            this.visitor = visitor;
             this.error = false;
+
+            scanner.advance();
         }
 
         void parse()
         {
             while (hasNext())
             {
-                final Token t = next();
-                if (t == TLiteral.LEFT_BRACKET)
+                final Token t = peek();
+                if (t == Token.LEFT_BRACKET)
                 {
+                    next();
                     parseCategory();
                 }
-                else if (t instanceof TName name)
+                else if (t == Token.NAME)
                 {
-                    parseKeyValuePair(name.value);
+                    final String key = scanner.string;
+                    next();
+                    if (peek() == Token.STRING && INCLUDE.equals(key))
+                    {
+                        parseInclude();
+                    }
+                    else
+                    {
+                        parseKeyValuePair(key);
+                    }
                 }
                 else
                 {
                     error = true;
                     next();
+                    next();
                 }
             }
         }
 
+        void parseInclude()
+        {
+            if (inCategory || !scanner.limits.includes())
+            {
+                error = true;
+            }
+            else
+            {
+                visitor.visitInclude(scanner.string);
+            }
+            next();
+        }
+
         void parseCategory()
         {
-            if (!(peek() instanceof TName))
+            inCategory = true;
+            if (peek() != Token.NAME)
             {
                 // Must have at least one entry
                 error = true;
                 return;
             }
+            final int start = scanner.tokenStart;
             final List<String> category = new ArrayList<>();
-            while (peek() instanceof TName name)
+            boolean contiguous = true;
+            while (peek() == Token.NAME)
             {
-                category.add(name.value);
+                if (!category.isEmpty()) contiguous &= scanner.tokenStart == end;
+                category.add(scanner.string);
                 next();
-                if (peek() == TLiteral.RIGHT_BRACKET)
+                if (peek() == Token.RIGHT_BRACKET)
                 {
+                    // If there is nothing but names and dots in the header, the full name is exactly the text, and can be resolved to its canonical instance
+                    final String name = category.size() == 1 ? category.get(0) : contiguous ? scanner.name(start, end) : String.join(".", category);
                     next();
-                    this.category = String.join(".", category);
+                    visitor.visitCategory(name);
+                    if (locations != null) locations.visitHeaderEnd(end);
                     break;
                 }
-                else if (peek() == TLiteral.DOT)
+                else if (peek() == Token.DOT)
                 {
+                    contiguous &= scanner.tokenStart == end;
                     next();
                 }
                 else
@@ -242,70 +921,101 @@ public final class TomlUtil
 
         void parseKeyValuePair(String key)
         {
-            if (next() != TLiteral.EQUALS)
+            if (next() != Token.EQUALS)
             {
                 error = true;
                 return;
             }
-            final Object value = parseValue();
-            if (value == null)
+            visitor.visitKey(key);
+            final int start = scanner.tokenStart;
+            if (!parseValue())
             {
                 error = true;
-                return;
+                visitor.visitInvalidValue();
             }
-            final String longKey = category == null ? key : category + "." + key;
-            this.values.put(longKey, value);
-        }
-
-        @Nullable
-        Object parseValue()
-        {
-            if (peek() == TLiteral.LEFT_BRACKET)
+            else if (locations != null)
             {
-                next();
-                return parseListValue();
-            }
-            else if (isValue(peek()))
-            {
-                return next().value();
+                locations.visitValueSpan(start, end);
             }
-            return null;
         }
 
-        @Nullable
-        List<Object> parseListValue()
+        /**
+         * Parses a single value, which may be a list. Nested lists are parsed iteratively, tracking only the current depth, so the cost is linear in the number of tokens, and the depth is bounded by {@link Limits#maxDepth()} rather than the stack.
+         */
+        boolean parseValue()
         {
-            final List<Object> list = new ArrayList<>();
-            while (hasNext())
+            int depth = 0;
+            while (true)
             {
-                final Object value = parseValue();
-                if (value == null) return null;
-                list.add(value);
-                if (peek() == TLiteral.RIGHT_BRACKET)
+                while (peek() == Token.LEFT_BRACKET)
                 {
+                    if (++depth > scanner.limits.maxDepth())
+                    {
+                        scanner.error = true;
+                        scanner.stop();
+                        return false;
+                    }
                     next();
-                    return list;
+                    visitor.visitListStart();
                 }
-                else if (peek() == TLiteral.COMMA)
+                if (!parseScalar())
                 {
-                    next();
+                    return false;
                 }
-                else
+
+                // Close any lists which end after this value, until the next element of an enclosing list
+                while (true)
                 {
-                    break;
+                    if (depth == 0)
+                    {
+                        return true;
+                    }
+                    if (peek() == Token.RIGHT_BRACKET)
+                    {
+                        next();
+                        visitor.visitListEnd();
+                        depth--;
+                    }
+                    else if (peek() == Token.COMMA)
+                    {
+                        next();
+                        break;
+                    }
+                    else
+                    {
+                        return false;
+                    }
                 }
             }
-            return null;
         }
 
-        boolean isValue(Token t) { return t instanceof TString || t instanceof TInt || t instanceof TFloat || t == TLiteral.TRUE || t == TLiteral.FALSE; }
+        boolean parseScalar()
+        {
+            switch (peek())
+            {
+                case STRING -> visitor.visitString(scanner.string);
+                case INT -> visitor.visitInt(scanner.intValue);
+                case LONG -> visitor.visitLong(scanner.longValue);
+                case FLOAT -> visitor.visitFloat(scanner.floatValue);
+                case DOUBLE -> visitor.visitDouble(scanner.doubleValue);
+                case TRUE -> visitor.visitBool(true);
+                case FALSE -> visitor.visitBool(false);
+                default ->
+                {
+                    return false;
+                }
+            }
+            next();
+            return true;
+        }
 
-        boolean hasNext() { return index < inputs.size(); }
-        Token peek() { return hasNext() ? inputs.get(index) : TLiteral.INVALID; }
+        boolean hasNext() { return scanner.token != Token.EOF; }
+        Token peek() { return scanner.token; }
         Token next()
         {
-            final Token t = peek();
-            index++;
+            final Token t = scanner.token;
+            end = scanner.index;
+            scanner.advance();
             return t;
         }
     }
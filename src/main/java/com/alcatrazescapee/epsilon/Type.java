@@ -1,39 +1,68 @@
 package com.alcatrazescapee.epsilon;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import com.alcatrazescapee.epsilon.value.LazyValue;
 import com.alcatrazescapee.epsilon.value.TypeValue;
 import com.alcatrazescapee.epsilon.value.Value;
 import org.apache.commons.lang3.StringEscapeUtils;
 
 /**
- * A {@code Type<T>} is a type that is able to serialize to toml directly. As such, it must be one of the supported primitive types ({@code BOOL, INT, FLOAT, STRING}), or a derived type such as a list (i.e. {@code STRING_LIST}).
+ * A {@code Type<T>} is a type that is able to serialize to toml directly. As such, it must be one of the supported primitive types ({@code BOOL, INT, LONG, FLOAT, DOUBLE, STRING}), or a derived type such as a list (i.e. {@code STRING_LIST}).
  * A {@link ValueConverter} can be created by starting with a {@code Type}, and using one of the {@code map()} variants.
  */
 public interface Type<T>
 {
     Type<Boolean> BOOL = token -> {
         if (token instanceof Boolean boolValue) return boolValue;
-        throw new ParseError("Cannot convert " + token + " to boolean");
+        throw new ParseError(() -> "Cannot convert " + token + " to boolean");
     };
     Type<Integer> INT = token -> {
         if (token instanceof Integer intValue) return intValue;
-        throw new ParseError("Cannot convert " + token + " to int");
+        throw new ParseError(() -> "Cannot convert " + token + " to int");
+    };
+    Type<Long> LONG = token -> {
+        if (token instanceof Long longValue) return longValue;
+        if (token instanceof Integer intValue) return intValue.longValue();
+        throw new ParseError(() -> "Cannot convert " + token + " to long");
     };
     Type<Float> FLOAT = token -> {
         if (token instanceof Float floatValue) return floatValue;
+        if (token instanceof Double doubleValue)
+        {
+            // Doubles are rounded to the nearest float, but must not overflow to infinity, or underflow to zero
+            final float value = doubleValue.floatValue();
+            if (Float.isFinite(value) && (value != 0 || doubleValue == 0)) return value;
+            throw new ParseError(() -> "Cannot convert " + token + " to float: out of range");
+        }
         if (token instanceof Integer intValue) return intValue.floatValue();
-        throw new ParseError("Cannot convert " + token + " to float");
+        if (token instanceof Long longValue)
+        {
+            // Longs are only accepted if they are exactly representable, as otherwise they would silently lose precision
+            final float value = longValue.floatValue();
+            if (value >= -0x1p63f && value < 0x1p63f && (long) value == longValue) return value;
+            throw new ParseError(() -> "Cannot convert " + token + " to float without losing precision");
+        }
+        throw new ParseError(() -> "Cannot convert " + token + " to float");
+    };
+    Type<Double> DOUBLE = token -> {
+        if (token instanceof Double doubleValue) return doubleValue;
+        if (token instanceof Float floatValue) return Double.parseDouble(floatValue.toString()); // Float tokens have few enough digits to round trip exactly through their string form
+        if (token instanceof Integer intValue) return intValue.doubleValue();
+        if (token instanceof Long longValue) return longValue.doubleValue();
+        throw new ParseError(() -> "Cannot convert " + token + " to double");
     };
     Type<String> STRING = new Type<>() {
         @Override
         public String parse(Object token)
         {
             if (token instanceof String string) return string;
-            throw new ParseError("Cannot convert " + token + " to string");
+            throw new ParseError(() -> "Cannot convert " + token + " to string");
         }
 
         @Override
@@ -42,10 +71,138 @@ public interface Type<T>
         {
             return "\"%s\"".formatted(StringEscapeUtils.escapeJava(value));
         }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void write(String value, Appendable output) throws IOException
+        {
+            output.append('"').append(requiresEscape(value) ? StringEscapeUtils.escapeJava(value) : value).append('"');
+        }
+
+        /**
+         * @return {@code true} if {@code value} contains any characters which would be modified by {@link StringEscapeUtils#escapeJava(String)}.
+         */
+        private boolean requiresEscape(String value)
+        {
+            for (int i = 0; i < value.length(); i++)
+            {
+                final char c = value.charAt(i);
+                if (c < 32 || c > 0x7f || c == '"' || c == '\\') return true;
+            }
+            return false;
+        }
     };
 
     Type<List<String>> STRING_LIST = Type.STRING.listOf();
 
+    /**
+     * A list of {@code int}s, stored in an array. Lists parsed from a config are converted without boxing their elements.
+     */
+    Type<int[]> INT_ARRAY = new Type<>() {
+        @Override
+        public int[] parse(Object token)
+        {
+            if (token instanceof TomlUtil.RawList list && list.kind == TomlUtil.RawList.INT) return Arrays.copyOf(list.ints, list.size);
+            final List<?> list = parseList(token);
+            final int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) array[i] = INT.parse(list.get(i));
+            return array;
+        }
+
+        @Override
+        public String write(int[] value)
+        {
+            return Arrays.toString(value);
+        }
+
+        @Override
+        public void write(int[] value, Appendable output) throws IOException
+        {
+            output.append('[');
+            for (int i = 0; i < value.length; i++)
+            {
+                if (i > 0) output.append(", ");
+                output.append(Integer.toString(value[i]));
+            }
+            output.append(']');
+        }
+    };
+
+    /**
+     * A list of {@code float}s, stored in an array. Lists parsed from a config are converted without boxing their elements.
+     */
+    Type<float[]> FLOAT_ARRAY = new Type<>() {
+        @Override
+        public float[] parse(Object token)
+        {
+            if (token instanceof TomlUtil.RawList list)
+            {
+                if (list.kind == TomlUtil.RawList.FLOAT) return Arrays.copyOf(list.floats, list.size);
+                if (list.kind == TomlUtil.RawList.INT)
+                {
+                    final float[] array = new float[list.size];
+                    for (int i = 0; i < array.length; i++) array[i] = list.ints[i];
+                    return array;
+                }
+            }
+            final List<?> list = parseList(token);
+            final float[] array = new float[list.size()];
+            for (int i = 0; i < array.length; i++) array[i] = FLOAT.parse(list.get(i));
+            return array;
+        }
+
+        @Override
+        public String write(float[] value)
+        {
+            return Arrays.toString(value);
+        }
+
+        @Override
+        public void write(float[] value, Appendable output) throws IOException
+        {
+            output.append('[');
+            for (int i = 0; i < value.length; i++)
+            {
+                if (i > 0) output.append(", ");
+                output.append(Float.toString(value[i]));
+            }
+            output.append(']');
+        }
+    };
+
+    /**
+     * A list of {@code boolean}s, stored in an array. Lists parsed from a config are converted without boxing their elements.
+     */
+    Type<boolean[]> BOOL_ARRAY = new Type<>() {
+        @Override
+        public boolean[] parse(Object token)
+        {
+            if (token instanceof TomlUtil.RawList list && list.kind == TomlUtil.RawList.BOOL) return Arrays.copyOf(list.bools, list.size);
+            final List<?> list = parseList(token);
+            final boolean[] array = new boolean[list.size()];
+            for (int i = 0; i < array.length; i++) array[i] = BOOL.parse(list.get(i));
+            return array;
+        }
+
+        @Override
+        public String write(boolean[] value)
+        {
+            return Arrays.toString(value);
+        }
+
+        @Override
+        public void write(boolean[] value, Appendable output) throws IOException
+        {
+            output.append('[');
+            for (int i = 0; i < value.length; i++)
+            {
+                if (i > 0) output.append(", ");
+                output.append(value[i] ? "true" : "false");
+            }
+            output.append(']');
+        }
+    };
+
     /**
      * @return A new type representing a {@code List<T>} of the underlying {@code elementType}
      */
@@ -55,8 +212,7 @@ public interface Type<T>
             @Override
             public List<T> parse(Object token)
             {
-                if (token instanceof List<?> value) return value.stream().map(elementType::parse).toList();
-                throw new ParseError("Cannot convert " + token + " to list");
+                return parseList(token).stream().map(elementType::parse).toList();
             }
 
             @Override
@@ -66,12 +222,32 @@ public interface Type<T>
                     .map(elementType::write)
                     .collect(Collectors.joining(", ")));
             }
+
+            @Override
+            public void write(List<T> value, Appendable output) throws IOException
+            {
+                output.append('[');
+                boolean first = true;
+                for (final T element : value)
+                {
+                    if (!first) output.append(", ");
+                    elementType.write(element, output);
+                    first = false;
+                }
+                output.append(']');
+            }
         };
     }
 
+    private static List<?> parseList(Object token)
+    {
+        if (token instanceof List<?> value) return value;
+        throw new ParseError(() -> "Cannot convert " + token + " to list");
+    }
+
     /**
      * Parses an object of type {@code <T>} from a toml value. The token will be a representable toml value such as int, boolean, string, or list.
-     * @param token A toml representable object value, which may be a {@link Integer}, {@link Boolean}, {@link Float}, {@link String}, or {@link List}.
+     * @param token A toml representable object value, which may be a {@link Integer}, {@link Long}, {@link Boolean}, {@link Float}, {@link Double}, {@link String}, or {@link List}.
      * @return An intermediate representation of the object.
      */
     T parse(Object token) throws ParseError;
@@ -86,6 +262,16 @@ public interface Type<T>
         return String.valueOf(value);
     }
 
+    /**
+     * Writes this type as a toml representable string directly to {@code output}. Types which can be written in pieces, such as lists, should override this to avoid building the whole string first.
+     * @param value A value of the type {@code <T>}.
+     * @param output The output to append to.
+     */
+    default void write(T value, Appendable output) throws IOException
+    {
+        output.append(write(value));
+    }
+
     /**
      * @return A new type representing a {@code List<T>} of this type.
      */
@@ -129,4 +315,13 @@ public interface Type<T>
     {
         return new ValueConverter<>(this, parseFunction, writeFunction, factory);
     }
+
+    /**
+     * Creates a {@link ValueConverter} which holds a value of type {@code U}, which is converted from the raw type {@code T} lazily. When loaded, the value is only validated using the {@code validateFunction}, which should throw a {@link ParseError} if the provided value is invalid. It is then converted using the {@code parseFunction} on first read, and memoized until the value is next loaded with a different raw value.
+     * This is intended for conversions which are expensive, such as compiling a regex, for values which are rarely read. The {@code validateFunction} must reject all values that the {@code parseFunction} would, as errors thrown from the {@code parseFunction} will only be thrown at the time the value is read.
+     */
+    default <U> ValueConverter<T, U, LazyValue<U>> mapLazy(Consumer<T> validateFunction, Function<T, U> parseFunction, Function<U, T> writeFunction)
+    {
+        return new ValueConverter<>(this, parseFunction, writeFunction, LazyValue::new, validateFunction);
+    }
 }
@@ -1,25 +1,130 @@
 package com.alcatrazescapee.epsilon;
 
-import java.util.function.Consumer;
+import java.io.IOException;
+import java.util.Objects;
 
+import com.alcatrazescapee.epsilon.value.LazyValue;
+import com.alcatrazescapee.epsilon.value.ReadCounter;
 import com.alcatrazescapee.epsilon.value.Value;
 import org.jetbrains.annotations.Nullable;
 
 record TypedValue<T, U, V extends Value<U>>(String name, String longName, @Nullable String[] comment, V value, U defaultValue, ValueConverter<T, U, V> converter)
 {
-    String write()
+    /**
+     * Writes the current value. A lazy value which has not been converted yet is written from its raw config value, without converting it.
+     */
+    @SuppressWarnings("unchecked")
+    void write(Appendable output) throws IOException
     {
-        return converter.write(value);
+        if (value instanceof LazyValue<?> lazy)
+        {
+            final Object source = lazy.source();
+            if (source != null)
+            {
+                converter.type().write((T) source, output);
+                return;
+            }
+        }
+        converter.write(current(), output);
     }
 
-    void parse(Object object, Consumer<String> error)
+    /**
+     * Writes a previously staged value, rather than the current value. A {@link Deferred} value is written from its raw config value, without converting it.
+     */
+    @SuppressWarnings("unchecked")
+    void write(Object staged, Appendable output) throws IOException
     {
-        try { converter.parseInto(object, value); }
-        catch (ParseError e) { error.accept("Reading " + longName + ": " + e.getMessage()); }
+        if (staged instanceof Deferred deferred)
+        {
+            converter.type().write((T) deferred.source(), output);
+        }
+        else
+        {
+            converter.write((U) staged, output);
+        }
     }
 
-    void reset()
+    /**
+     * @return The current value, without counting it as a read.
+     */
+    U current()
     {
-        value.set(defaultValue);
+        return ReadCounter.uncounted(value);
     }
+
+    String writeDefault()
+    {
+        return converter.writeValue(defaultValue);
+    }
+
+    /**
+     * Parses a new value from {@code object}, or the default value if {@code object} is missing or invalid, without modifying the current value.
+     * For a {@link ValueConverter#lazy()} converter, the value is only validated, and a {@link Deferred} value is returned, which is converted when first read.
+     */
+    Object stage(@Nullable Object object, Diagnostics diagnostics)
+    {
+        if (object == null)
+        {
+            diagnostics.report(Diagnostic.Kind.MISSING, longName, null);
+            return defaultValue;
+        }
+        try { return convert(object); }
+        catch (ParseError e)
+        {
+            diagnostics.report(Diagnostic.Kind.INVALID, longName, e);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Parses a new value from {@code object}, supplied by the {@link Source} named {@code source}, as with {@link #stage(Object, Diagnostics)}.
+     *
+     * @return The staged value, or {@code null} if {@code object} was invalid.
+     */
+    @Nullable
+    Object stage(Object object, String source, Diagnostics diagnostics)
+    {
+        try { return convert(object); }
+        catch (ParseError e)
+        {
+            diagnostics.report(Diagnostic.Kind.OVERRIDE, longName, new ParseError(() -> source + ": " + e.getMessage()));
+            return null;
+        }
+    }
+
+    private Object convert(Object object) throws ParseError
+    {
+        return converter.lazy() ? new Deferred(converter.validate(object)) : converter.parse(object);
+    }
+
+    /**
+     * Sets the current value to a previously staged value, if it is different. Arrays, used by primitive list values, are compared by content. A lazy value which has not been converted is always replaced, without converting it.
+     *
+     * @return {@code true} if the value was changed.
+     */
+    @SuppressWarnings("unchecked")
+    boolean publish(Object staged)
+    {
+        if (staged instanceof Deferred deferred)
+        {
+            if (value instanceof LazyValue<?> lazy)
+            {
+                return ((LazyValue<U>) lazy).defer((T) deferred.source(), converter.parseFunction());
+            }
+            staged = converter.parseFunction().apply((T) deferred.source());
+        }
+        final U newValue = (U) staged;
+        // A lazy value which has not been converted yet would be converted by comparing it, so it is replaced without comparing
+        if ((value instanceof LazyValue<?> lazy && lazy.isDeferred()) || !Objects.deepEquals(current(), newValue))
+        {
+            value.set(newValue);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * A validated, but not yet converted, raw config value.
+     */
+    record Deferred(Object source) {}
 }
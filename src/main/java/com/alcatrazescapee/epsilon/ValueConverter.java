@@ -1,14 +1,24 @@
 package com.alcatrazescapee.epsilon;
 
+import java.io.IOException;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
+import com.alcatrazescapee.epsilon.value.BoolListValue;
 import com.alcatrazescapee.epsilon.value.BoolValue;
+import com.alcatrazescapee.epsilon.value.DoubleValue;
+import com.alcatrazescapee.epsilon.value.FloatListValue;
 import com.alcatrazescapee.epsilon.value.FloatValue;
+import com.alcatrazescapee.epsilon.value.IntListValue;
 import com.alcatrazescapee.epsilon.value.IntValue;
+import com.alcatrazescapee.epsilon.value.LongValue;
 import com.alcatrazescapee.epsilon.value.TypeValue;
 import com.alcatrazescapee.epsilon.value.Value;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * A {@code ValueConverter} represents a transformation between a config type {@code T}, a derived type {@code U}, and a value type {@code V}. It can be created by one of the {@code Type.TYPE.map()} variants, and can represent any type which can be injectively transformed to a supported confi type.
@@ -17,47 +27,97 @@ import com.alcatrazescapee.epsilon.value.Value;
  * @param <U> The type of the object exposed in the {@link Value}. Also known as the derived type.
  * @param <V> The specific type of the {@link Value}.
  */
-public record ValueConverter<T, U, V extends Value<U>>(Type<T> type, Function<T, U> parseFunction, Function<U, T> writeFunction, Function<U, V> factory)
+public record ValueConverter<T, U, V extends Value<U>>(Type<T> type, Function<T, U> parseFunction, Function<U, T> writeFunction, Function<U, V> factory, @Nullable Consumer<T> validateFunction)
 {
     public static final ValueConverter<Integer, Integer, IntValue> INT = Type.INT.map(IntValue::new);
+    public static final ValueConverter<Long, Long, LongValue> LONG = Type.LONG.map(LongValue::new);
     public static final ValueConverter<Float, Float, FloatValue> FLOAT = Type.FLOAT.map(FloatValue::new);
+    public static final ValueConverter<Double, Double, DoubleValue> DOUBLE = Type.DOUBLE.map(DoubleValue::new);
     public static final ValueConverter<Boolean, Boolean, BoolValue> BOOL = Type.BOOL.map(BoolValue::new);
     public static final ValueConverter<String, String, TypeValue<String>> STRING = Type.STRING.map(TypeValue::new);
     public static final ValueConverter<List<String>, List<String>, TypeValue<List<String>>> STRING_LIST = Type.STRING_LIST.map(TypeValue::new);
+    public static final ValueConverter<int[], int[], IntListValue> INT_LIST = Type.INT_ARRAY.map(IntListValue::new);
+    public static final ValueConverter<float[], float[], FloatListValue> FLOAT_LIST = Type.FLOAT_ARRAY.map(FloatListValue::new);
+    public static final ValueConverter<boolean[], boolean[], BoolListValue> BOOL_LIST = Type.BOOL_ARRAY.map(BoolListValue::new);
 
     static ValueConverter<Integer, Integer, IntValue> forRange(int minValue, int maxValue)
     {
         return Type.INT.map(value -> {
-            if (value < minValue || value > maxValue) throw new ParseError("Value " + value + " not in range [" + minValue + ", " + maxValue + "]");
+            if (value < minValue || value > maxValue) throw new ParseError(() -> "Value " + value + " not in range [" + minValue + ", " + maxValue + "]");
         }, IntValue::new);
     }
 
+    static ValueConverter<Long, Long, LongValue> forRange(long minValue, long maxValue)
+    {
+        return Type.LONG.map(value -> {
+            if (value < minValue || value > maxValue) throw new ParseError(() -> "Value " + value + " not in range [" + minValue + ", " + maxValue + "]");
+        }, LongValue::new);
+    }
+
     static ValueConverter<Float, Float, FloatValue> forRange(float minValue, float maxValue)
     {
         return Type.FLOAT.map(value -> {
-            if (value < minValue || value > maxValue) throw new ParseError("Value " + value + " not in range [" + minValue + ", " + maxValue + "]");
+            if (value < minValue || value > maxValue) throw new ParseError(() -> "Value " + value + " not in range [" + minValue + ", " + maxValue + "]");
         }, FloatValue::new);
     }
 
+    static ValueConverter<Double, Double, DoubleValue> forRange(double minValue, double maxValue)
+    {
+        return Type.DOUBLE.map(value -> {
+            if (value < minValue || value > maxValue) throw new ParseError(() -> "Value " + value + " not in range [" + minValue + ", " + maxValue + "]");
+        }, DoubleValue::new);
+    }
+
     static <E extends Enum<E>> ValueConverter<String, E, TypeValue<E>> forEnum(Class<E> enumClass, EnumSet<E> set)
     {
+        // Look up allowed values by name directly, rather than catching the exception thrown by Enum.valueOf() for invalid names
+        final Map<String, E> allowed = new HashMap<>();
+        for (final E enumValue : set) allowed.put(enumValue.name(), enumValue);
         return Type.STRING.map(value -> {
-            final E enumValue;
-            try { enumValue = Enum.valueOf(enumClass, value); }
-            catch (IllegalArgumentException e) { throw new ParseError("Invalid value: '%s', must be one of %s".formatted(value, set)); }
-            if (!set.contains(enumValue)) throw new ParseError("Invalid value: '%s', must be one of %s".formatted(value, set));
+            final E enumValue = allowed.get(value);
+            if (enumValue == null) throw new ParseError(() -> "Invalid value: '%s', must be one of %s".formatted(value, set));
             return enumValue;
         }, Enum::name, TypeValue::new);
     }
 
-    void parseInto(Object object, V value) throws ParseError
+    public ValueConverter(Type<T> type, Function<T, U> parseFunction, Function<U, T> writeFunction, Function<U, V> factory)
+    {
+        this(type, parseFunction, writeFunction, factory, null);
+    }
+
+    /**
+     * @return {@code true} if values are only validated when loaded, and converted later, when first read.
+     * @see Type#mapLazy(Consumer, Function, Function)
+     */
+    boolean lazy()
+    {
+        return validateFunction != null;
+    }
+
+    /**
+     * Parses and validates the raw config value from {@code object}, without converting it.
+     */
+    @SuppressWarnings("ConstantConditions")
+    T validate(Object object) throws ParseError
+    {
+        final T value = type.parse(object);
+        validateFunction.accept(value);
+        return value;
+    }
+
+    U parse(Object object) throws ParseError
+    {
+        return parseFunction.apply(type.parse(object));
+    }
+
+    void write(U value, Appendable output) throws IOException
     {
-        value.set(parseFunction.apply(type.parse(object)));
+        type.write(writeFunction.apply(value), output);
     }
 
-    String write(V value)
+    String writeValue(U value)
     {
-        return type.write(writeFunction.apply(value.get()));
+        return type.write(writeFunction.apply(value));
     }
 
     V create(U defaultValue)
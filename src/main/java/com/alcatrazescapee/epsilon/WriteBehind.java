@@ -0,0 +1,100 @@
+package com.alcatrazescapee.epsilon;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.Nullable;
+
+import com.alcatrazescapee.epsilon.value.Value;
+
+/**
+ * Persists changes made to values at runtime, by {@link Value#set(Object)}, to a config file. The first change after a write schedules the next write, and all changes made within the window are coalesced into that single write, which happens on a background thread.
+ * Only the changed values are patched into the file, leaving everything else, including formatting and comments, untouched. Changes made by loading the config are not persisted.
+ * <p>
+ * Created via {@link EpsilonUtil#writeBehind(Spec, Path, Consumer, Duration)}, and stopped via {@link #close()}, which writes any pending changes.
+ */
+public final class WriteBehind implements Closeable
+{
+    private final Spec spec;
+    private final Path path;
+    private final Consumer<String> onError;
+    private final long windowMillis;
+
+    private final ScheduledExecutorService executor;
+    private final Object writeLock;
+
+    private BitSet changed;
+    @Nullable private ScheduledFuture<?> pending;
+    private boolean closed;
+
+    WriteBehind(Spec spec, Path path, Consumer<String> onError, Duration window)
+    {
+        this.spec = spec;
+        this.path = path.toAbsolutePath();
+        this.onError = onError;
+        this.windowMillis = window.toMillis();
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            final Thread thread = new Thread(task, "Epsilon Write-Behind: " + path);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writeLock = new Object();
+        this.changed = new BitSet();
+
+        spec.track(this::change);
+    }
+
+    /**
+     * Writes any pending changes immediately, on the calling thread, i.e. before shutting down. Returns once the file has been replaced.
+     */
+    public void flush()
+    {
+        synchronized (writeLock)
+        {
+            final BitSet changed;
+            synchronized (this)
+            {
+                changed = this.changed;
+                this.changed = new BitSet();
+                if (pending != null) pending.cancel(false);
+                pending = null;
+            }
+            if (!changed.isEmpty())
+            {
+                EpsilonUtil.persist(spec, path, changed, Diagnostics.forwarding(onError));
+            }
+        }
+    }
+
+    /**
+     * Stops tracking changes, and writes any pending changes.
+     */
+    @Override
+    public void close()
+    {
+        synchronized (this)
+        {
+            if (closed) return;
+            closed = true;
+        }
+        spec.track(null);
+        flush();
+        executor.shutdownNow();
+    }
+
+    private synchronized void change(int ordinal)
+    {
+        changed.set(ordinal);
+        if (pending == null && !closed)
+        {
+            pending = executor.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
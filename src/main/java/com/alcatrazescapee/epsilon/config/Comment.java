@@ -0,0 +1,16 @@
+package com.alcatrazescapee.epsilon.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A comment for a value or category in a {@link Config}, as in {@link com.alcatrazescapee.epsilon.SpecBuilder#comment(String...)}.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface Comment
+{
+    String[] value();
+}
@@ -0,0 +1,18 @@
+package com.alcatrazescapee.epsilon.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface as a config, from which the {@link ConfigProcessor} generates a class named {@code <Name>Spec}, which defines the {@link com.alcatrazescapee.epsilon.Spec}, and holds the loaded values.
+ * <ul>
+ *     <li>Each {@code default} method is a config value, where the name of the method is the name of the value, and the value returned is the default value. Supported types are {@code int, long, float, double, boolean, String}, enums, {@code List<String>}, and {@code int[], float[], boolean[]}.</li>
+ *     <li>Each abstract method must return another interface, which is a category, with the name of the method. Categories are defined in the same way, and may be nested.</li>
+ * </ul>
+ * Values may be annotated with {@link Comment} and {@link Range}. Categories may be annotated with {@link Comment}.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Config {}
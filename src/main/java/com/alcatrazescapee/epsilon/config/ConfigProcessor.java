@@ -0,0 +1,460 @@
+package com.alcatrazescapee.epsilon.config;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a {@code <Name>Spec} class for each interface annotated with {@link Config}. The generated class:
+ * <ul>
+ *     <li>Defines a {@link com.alcatrazescapee.epsilon.Spec} with a value for each default method, and a category for each abstract method, of the interface.</li>
+ *     <li>Implements {@code Supplier<Name>}, returning an immutable snapshot of all values, where each value is a final field of a record implementing the interface.</li>
+ *     <li>Replaces the snapshot whenever a load of the spec changes any value, so all values read from a single snapshot are from the same load.</li>
+ * </ul>
+ * Reading a value from a snapshot is a plain field read, with no boxing, or indirection through a {@link com.alcatrazescapee.epsilon.value.Value}.
+ */
+@SupportedAnnotationTypes("com.alcatrazescapee.epsilon.config.Config")
+public final class ConfigProcessor extends AbstractProcessor
+{
+    private static final String GENERATED_SUFFIX = "Spec";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round)
+    {
+        for (final Element element : round.getElementsAnnotatedWith(Config.class))
+        {
+            if (element.getKind() != ElementKind.INTERFACE)
+            {
+                error(element, "@Config can only be applied to an interface");
+                continue;
+            }
+            final TypeElement type = (TypeElement) element;
+            try
+            {
+                write(type, category(type, null, "", new ArrayList<>(), new HashSet<>()));
+            }
+            catch (InvalidConfig e)
+            {
+                error(e.element, e.getMessage());
+            }
+            catch (IOException e)
+            {
+                error(type, "Unable to write generated config: " + e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param visiting The types of this category, and all enclosing categories, in order to reject recursive categories.
+     */
+    private Category category(TypeElement type, ExecutableElement method, String path, List<Category> all, Set<TypeElement> visiting) throws InvalidConfig
+    {
+        if (!visiting.add(type))
+        {
+            throw new InvalidConfig(method, "Config categories must not be recursive: " + type.getQualifiedName() + " contains itself");
+        }
+        final Category category = new Category(type, method, "Config" + all.size(), "DEFAULTS" + all.size(), new ArrayList<>(), new ArrayList<>());
+        all.add(category);
+        for (final ExecutableElement member : methods(type))
+        {
+            if (member.getModifiers().contains(Modifier.STATIC) || member.getModifiers().contains(Modifier.PRIVATE))
+            {
+                continue;
+            }
+            if (!member.getParameters().isEmpty() || !member.getTypeParameters().isEmpty())
+            {
+                throw new InvalidConfig(member, "Config methods must not have any parameters");
+            }
+
+            final String name = member.getSimpleName().toString();
+            final String field = path.isEmpty() ? name : path + "_" + name;
+            if (member.isDefault())
+            {
+                category.entries.add(new Entry(member, name, field + "Value", kind(member)));
+            }
+            else if (member.getReturnType() instanceof DeclaredType declared && declared.asElement().getKind() == ElementKind.INTERFACE)
+            {
+                category.children.add(category((TypeElement) declared.asElement(), member, field, all, visiting));
+            }
+            else
+            {
+                throw new InvalidConfig(member, "Config methods must either be default methods, which are values, or return an interface, which is a category");
+            }
+        }
+        visiting.remove(type);
+        return category;
+    }
+
+    /**
+     * @return All methods of {@code type}, including those inherited from super-interfaces, except those which are overridden. Declared methods are first, in declaration order, followed by the methods of each super-interface in turn.
+     */
+    private List<ExecutableElement> methods(TypeElement type)
+    {
+        final Set<Element> members = new HashSet<>(processingEnv.getElementUtils().getAllMembers(type));
+        final List<ExecutableElement> methods = new ArrayList<>();
+        methods(type, members, methods);
+        return methods;
+    }
+
+    private void methods(TypeElement type, Set<Element> members, List<ExecutableElement> methods)
+    {
+        for (final ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements()))
+        {
+            if (members.remove(method))
+            {
+                methods.add(method);
+            }
+        }
+        for (final TypeMirror parent : type.getInterfaces())
+        {
+            methods((TypeElement) ((DeclaredType) parent).asElement(), members, methods);
+        }
+    }
+
+    private Kind kind(ExecutableElement method) throws InvalidConfig
+    {
+        final TypeMirror type = method.getReturnType();
+        final Kind kind = switch (type.getKind())
+        {
+            case INT -> Kind.INT;
+            case LONG -> Kind.LONG;
+            case FLOAT -> Kind.FLOAT;
+            case DOUBLE -> Kind.DOUBLE;
+            case BOOLEAN -> Kind.BOOL;
+            case ARRAY -> switch (((ArrayType) type).getComponentType().getKind())
+            {
+                case INT -> Kind.INT_LIST;
+                case FLOAT -> Kind.FLOAT_LIST;
+                case BOOLEAN -> Kind.BOOL_LIST;
+                default -> null;
+            };
+            case DECLARED ->
+            {
+                final String name = typeName(type);
+                if (name.equals("java.lang.String")) yield Kind.STRING;
+                if (name.equals("java.util.List<java.lang.String>")) yield Kind.STRING_LIST;
+                if (((DeclaredType) type).asElement().getKind() == ElementKind.ENUM) yield Kind.ENUM;
+                yield null;
+            }
+            default -> null;
+        };
+        if (kind == null)
+        {
+            throw new InvalidConfig(method, "Unsupported config type: " + type);
+        }
+        if (method.getAnnotation(Range.class) != null && !kind.numeric)
+        {
+            throw new InvalidConfig(method, "@Range can only be applied to int, long, float, or double values");
+        }
+        return kind;
+    }
+
+    private void write(TypeElement type, Category root) throws IOException, InvalidConfig
+    {
+        final String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        final String interfaceName = type.getQualifiedName().toString();
+        final String className = generatedName(type);
+
+        final List<Category> categories = new ArrayList<>();
+        collect(root, categories);
+
+        final StringBuilder out = new StringBuilder();
+        if (!packageName.isEmpty())
+        {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("/**\n")
+            .append(" * Generated from {@link ").append(interfaceName).append("} by the {@link com.alcatrazescapee.epsilon.config.ConfigProcessor}.\n")
+            .append(" * {@link #get()} returns a snapshot of all values, which is replaced each time a load of {@link #spec()} changes any value.\n")
+            .append(" */\n")
+            .append("@javax.annotation.processing.Generated(\"com.alcatrazescapee.epsilon.config.ConfigProcessor\")\n")
+            .append("public final class ").append(className).append(" implements java.util.function.Supplier<").append(interfaceName).append(">\n{\n");
+
+        // Instances of each interface, used only to obtain the default values
+        for (final Category category : categories)
+        {
+            final String name = category.type.getQualifiedName().toString();
+            out.append("    private static final ").append(name).append(' ').append(category.defaultsName).append(" = new ").append(name).append("() {");
+            for (final Category child : category.children)
+            {
+                out.append(" @Override public ").append(child.type.getQualifiedName()).append(' ').append(child.method.getSimpleName()).append("() { return null; }");
+            }
+            out.append(" };\n");
+        }
+        out.append('\n');
+
+        out.append("    private final com.alcatrazescapee.epsilon.Spec spec;\n");
+        for (final Category category : categories)
+        {
+            for (final Entry entry : category.entries)
+            {
+                out.append("    private final ").append(valueType(entry)).append(' ').append(entry.field).append(";\n");
+            }
+        }
+        out.append("    private volatile ").append(interfaceName).append(" current;\n\n");
+
+        out.append("    public ").append(className).append("()\n    {\n")
+            .append("        final com.alcatrazescapee.epsilon.SpecBuilder builder = com.alcatrazescapee.epsilon.Spec.builder();\n");
+        define(out, root);
+        out.append("        this.spec = builder.build();\n")
+            .append("        this.current = snapshot();\n");
+        if (categories.stream().anyMatch(category -> !category.entries.isEmpty()))
+        {
+            out.append("        this.spec.onChange(\"\", Runnable::run, () -> current = spec.read(this::snapshot));\n");
+        }
+        out.append("    }\n\n");
+
+        out.append("    public com.alcatrazescapee.epsilon.Spec spec()\n    {\n        return spec;\n    }\n\n");
+        out.append("    @Override\n    public ").append(interfaceName).append(" get()\n    {\n        return current;\n    }\n\n");
+        out.append("    private ").append(interfaceName).append(" snapshot()\n    {\n        return ").append(snapshot(root)).append(";\n    }\n");
+
+        for (final Category category : categories)
+        {
+            out.append("\n    private record ").append(category.implName).append('(');
+            final List<String> components = new ArrayList<>();
+            for (final Entry entry : category.entries)
+            {
+                components.add(typeName(entry.method.getReturnType()) + " " + entry.name);
+            }
+            for (final Category child : category.children)
+            {
+                components.add(child.type.getQualifiedName() + " " + child.method.getSimpleName());
+            }
+            out.append(String.join(", ", components)).append(") implements ").append(category.type.getQualifiedName()).append(" {}\n");
+        }
+        out.append("}\n");
+
+        final String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+        try (final Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter())
+        {
+            writer.write(out.toString());
+        }
+    }
+
+    private void define(StringBuilder out, Category category) throws InvalidConfig
+    {
+        for (final Entry entry : category.entries)
+        {
+            out.append("        this.").append(entry.field).append(" = builder");
+            comment(out, entry.method.getAnnotation(Comment.class));
+            out.append(".define(").append(literal(entry.name)).append(", ").append(category.defaultsName).append('.').append(entry.name).append("()");
+            final Range range = entry.method.getAnnotation(Range.class);
+            if (range != null)
+            {
+                out.append(", ").append(number(entry, range.min())).append(", ").append(number(entry, range.max()));
+            }
+            else if (entry.kind == Kind.ENUM)
+            {
+                out.append(", ").append(typeName(entry.method.getReturnType())).append(".class");
+            }
+            out.append(");\n");
+        }
+        for (final Category child : category.children)
+        {
+            out.append("        builder");
+            final Comment comment = child.method.getAnnotation(Comment.class);
+            comment(out, comment != null ? comment : child.type.getAnnotation(Comment.class));
+            out.append(".push(").append(literal(child.method.getSimpleName().toString())).append(");\n");
+            define(out, child);
+            out.append("        builder.pop();\n");
+        }
+    }
+
+    private String snapshot(Category category)
+    {
+        final List<String> arguments = new ArrayList<>();
+        for (final Entry entry : category.entries)
+        {
+            arguments.add(entry.field + "." + entry.kind.getter);
+        }
+        for (final Category child : category.children)
+        {
+            arguments.add(snapshot(child));
+        }
+        return "new " + category.implName + "(" + String.join(", ", arguments) + ")";
+    }
+
+    private void collect(Category category, List<Category> categories)
+    {
+        categories.add(category);
+        for (final Category child : category.children)
+        {
+            collect(child, categories);
+        }
+    }
+
+    private void comment(StringBuilder out, Comment comment)
+    {
+        if (comment != null)
+        {
+            out.append(".comment(");
+            for (int i = 0; i < comment.value().length; i++)
+            {
+                if (i > 0) out.append(", ");
+                out.append(literal(comment.value()[i]));
+            }
+            out.append(')');
+        }
+    }
+
+    private String valueType(Entry entry)
+    {
+        return switch (entry.kind)
+        {
+            case STRING, STRING_LIST, ENUM -> "com.alcatrazescapee.epsilon.value.TypeValue<" + typeName(entry.method.getReturnType()) + ">";
+            default -> "com.alcatrazescapee.epsilon.value." + entry.kind.valueClass;
+        };
+    }
+
+    private String number(Entry entry, double value) throws InvalidConfig
+    {
+        if (!Double.isFinite(value)) throw new InvalidConfig(entry.method, "@Range bound " + value + " is not finite");
+        return switch (entry.kind)
+        {
+            case INT ->
+            {
+                if (value != (int) value) throw new InvalidConfig(entry.method, "@Range bound " + value + " is not an int");
+                yield Integer.toString((int) value);
+            }
+            case LONG ->
+            {
+                if (value != (long) value) throw new InvalidConfig(entry.method, "@Range bound " + value + " is not a long");
+                yield (long) value + "L";
+            }
+            case FLOAT ->
+            {
+                if (!Float.isFinite((float) value)) throw new InvalidConfig(entry.method, "@Range bound " + value + " is not a float");
+                yield (float) value + "f";
+            }
+            default -> Double.toString(value);
+        };
+    }
+
+    /**
+     * @return The source representation of {@code type}, without any type annotations.
+     */
+    private String typeName(TypeMirror type)
+    {
+        if (type.getKind().isPrimitive())
+        {
+            return type.getKind().name().toLowerCase();
+        }
+        if (type instanceof ArrayType array)
+        {
+            return typeName(array.getComponentType()) + "[]";
+        }
+        final DeclaredType declared = (DeclaredType) type;
+        final String name = ((TypeElement) declared.asElement()).getQualifiedName().toString();
+        return declared.getTypeArguments().isEmpty() ? name : name + declared.getTypeArguments().stream().map(this::typeName).collect(Collectors.joining(", ", "<", ">"));
+    }
+
+    private String generatedName(TypeElement type)
+    {
+        final StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement())
+        {
+            name.insert(0, '_').insert(0, enclosing.getSimpleName());
+        }
+        return name.append(GENERATED_SUFFIX).toString();
+    }
+
+    private static String literal(String value)
+    {
+        final StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++)
+        {
+            final char c = value.charAt(i);
+            switch (c)
+            {
+                case '"' -> literal.append("\\\"");
+                case '\\' -> literal.append("\\\\");
+                case '\n' -> literal.append("\\n");
+                case '\r' -> literal.append("\\r");
+                case '\t' -> literal.append("\\t");
+                default ->
+                {
+                    if (c < 32) literal.append("\\u%04x".formatted((int) c));
+                    else literal.append(c);
+                }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void error(Element element, String message)
+    {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    enum Kind
+    {
+        INT("IntValue", "getAsInt()", true),
+        LONG("LongValue", "getAsLong()", true),
+        FLOAT("FloatValue", "getAsFloat()", true),
+        DOUBLE("DoubleValue", "getAsDouble()", true),
+        BOOL("BoolValue", "getAsBoolean()", false),
+        STRING("TypeValue", "get()", false),
+        STRING_LIST("TypeValue", "get()", false),
+        ENUM("TypeValue", "get()", false),
+        INT_LIST("IntListValue", "get()", false),
+        FLOAT_LIST("FloatListValue", "get()", false),
+        BOOL_LIST("BoolListValue", "get()", false);
+
+        final String valueClass;
+        final String getter;
+        final boolean numeric;
+
+        Kind(String valueClass, String getter, boolean numeric)
+        {
+            this.valueClass = valueClass;
+            this.getter = getter;
+            this.numeric = numeric;
+        }
+    }
+
+    /**
+     * @param method The method which declares this category, or {@code null} for the root.
+     */
+    record Category(TypeElement type, ExecutableElement method, String implName, String defaultsName, List<Entry> entries, List<Category> children) {}
+
+    record Entry(ExecutableElement method, String name, String field, Kind kind) {}
+
+    static final class InvalidConfig extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+
+        final transient Element element;
+
+        InvalidConfig(Element element, String message)
+        {
+            super(message, null, false, false);
+            this.element = element;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.alcatrazescapee.epsilon.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An inclusive range for a numeric value in a {@link Config}.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface Range
+{
+    double min();
+    double max();
+}
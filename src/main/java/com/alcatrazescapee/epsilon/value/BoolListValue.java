@@ -0,0 +1,63 @@
+package com.alcatrazescapee.epsilon.value;
+
+import java.util.BitSet;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A list of {@code boolean}s, backed by a {@link BitSet}. Elements can be read by index without boxing, i.e. in a loop over {@link #size()} using {@link #getBoolean(int)}.
+ */
+public final class BoolListValue implements Value<boolean[]>
+{
+    private volatile Bits value;
+    @Nullable private final ReadCounter reads = ReadCounter.create();
+    private volatile Runnable onSet = () -> {};
+
+    public BoolListValue(boolean[] value)
+    {
+        this.value = Bits.of(value);
+    }
+
+    public int size() { return value.size; }
+    public boolean getBoolean(int index)
+    {
+        if (ReadCounter.ENABLED) reads.record();
+        final Bits bits = value;
+        return bits.bits.get(Objects.checkIndex(index, bits.size));
+    }
+
+    /**
+     * @return A copy of the current list.
+     */
+    @Override
+    @NotNull
+    public boolean[] get()
+    {
+        if (ReadCounter.ENABLED) reads.record();
+        final Bits bits = value;
+        final boolean[] array = new boolean[bits.size];
+        for (int i = bits.bits.nextSetBit(0); i >= 0; i = bits.bits.nextSetBit(i + 1))
+        {
+            array[i] = true;
+        }
+        return array;
+    }
+
+    @Override public void set(boolean[] value) { this.value = Bits.of(value); onSet.run(); }
+    @Override public void onSet(Runnable listener) { this.onSet = listener; }
+    @Override @Nullable public ReadCounter readCounter() { return reads; }
+
+    record Bits(BitSet bits, int size)
+    {
+        static Bits of(boolean[] value)
+        {
+            final BitSet bits = new BitSet(value.length);
+            for (int i = 0; i < value.length; i++)
+            {
+                if (value[i]) bits.set(i);
+            }
+            return new Bits(bits, value.length);
+        }
+    }
+}
@@ -2,18 +2,23 @@ package com.alcatrazescapee.epsilon.value;
 
 import java.util.function.BooleanSupplier;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 
 public final class BoolValue implements BooleanSupplier, Value<Boolean>
 {
-    private boolean value;
+    private volatile boolean value;
+    @Nullable private final ReadCounter reads = ReadCounter.create();
+    private volatile Runnable onSet = () -> {};
 
     public BoolValue(boolean value)
     {
         this.value = value;
     }
 
-    @Override public boolean getAsBoolean() { return value; }
-    @Override @NotNull public Boolean get() { return value; }
-    @Override public void set(Boolean value) { this.value = value; }
+    @Override public boolean getAsBoolean() { if (ReadCounter.ENABLED) reads.record(); return value; }
+    @Override @NotNull public Boolean get() { if (ReadCounter.ENABLED) reads.record(); return value; }
+    @Override public void set(Boolean value) { this.value = value; onSet.run(); }
+    @Override public void onSet(Runnable listener) { this.onSet = listener; }
+    @Override @Nullable public ReadCounter readCounter() { return reads; }
 }
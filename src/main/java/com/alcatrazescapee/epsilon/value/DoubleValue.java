@@ -0,0 +1,23 @@
+package com.alcatrazescapee.epsilon.value;
+
+import java.util.function.DoubleSupplier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public final class DoubleValue implements DoubleSupplier, Value<Double>
+{
+    private volatile double value;
+    @Nullable private final ReadCounter reads = ReadCounter.create();
+    private volatile Runnable onSet = () -> {};
+
+    public DoubleValue(double value)
+    {
+        this.value = value;
+    }
+
+    @Override public double getAsDouble() { if (ReadCounter.ENABLED) reads.record(); return value; }
+    @Override @NotNull public Double get() { if (ReadCounter.ENABLED) reads.record(); return value; }
+    @Override public void set(Double value) { this.value = value; onSet.run(); }
+    @Override public void onSet(Runnable listener) { this.onSet = listener; }
+    @Override @Nullable public ReadCounter readCounter() { return reads; }
+}
@@ -0,0 +1,30 @@
+package com.alcatrazescapee.epsilon.value;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A list of {@code float}s, backed by an array. Elements can be read by index without boxing, i.e. in a loop over {@link #size()} using {@link #getFloat(int)}.
+ */
+public final class FloatListValue implements Value<float[]>
+{
+    private volatile float[] value;
+    @Nullable private final ReadCounter reads = ReadCounter.create();
+    private volatile Runnable onSet = () -> {};
+
+    public FloatListValue(float[] value)
+    {
+        this.value = value.clone();
+    }
+
+    public int size() { return value.length; }
+    public float getFloat(int index) { if (ReadCounter.ENABLED) reads.record(); return value[index]; }
+
+    /**
+     * @return A copy of the current list.
+     */
+    @Override @NotNull public float[] get() { if (ReadCounter.ENABLED) reads.record(); return value.clone(); }
+    @Override public void set(float[] value) { this.value = value.clone(); onSet.run(); }
+    @Override public void onSet(Runnable listener) { this.onSet = listener; }
+    @Override @Nullable public ReadCounter readCounter() { return reads; }
+}
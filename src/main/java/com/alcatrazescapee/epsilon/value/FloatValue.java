@@ -1,17 +1,22 @@
 package com.alcatrazescapee.epsilon.value;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public final class FloatValue implements Value<Float>
 {
-    private float value;
+    private volatile float value;
+    @Nullable private final ReadCounter reads = ReadCounter.create();
+    private volatile Runnable onSet = () -> {};
 
     public FloatValue(float value)
     {
         this.value = value;
     }
 
-    public float getAsFloat() { return value; }
-    @Override @NotNull public Float get() { return value; }
-    @Override public void set(Float value) { this.value = value; }
+    public float getAsFloat() { if (ReadCounter.ENABLED) reads.record(); return value; }
+    @Override @NotNull public Float get() { if (ReadCounter.ENABLED) reads.record(); return value; }
+    @Override public void set(Float value) { this.value = value; onSet.run(); }
+    @Override public void onSet(Runnable listener) { this.onSet = listener; }
+    @Override @Nullable public ReadCounter readCounter() { return reads; }
 }
@@ -0,0 +1,30 @@
+package com.alcatrazescapee.epsilon.value;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A list of {@code int}s, backed by an array. Elements can be read by index without boxing, i.e. in a loop over {@link #size()} using {@link #getInt(int)}.
+ */
+public final class IntListValue implements Value<int[]>
+{
+    private volatile int[] value;
+    @Nullable private final ReadCounter reads = ReadCounter.create();
+    private volatile Runnable onSet = () -> {};
+
+    public IntListValue(int[] value)
+    {
+        this.value = value.clone();
+    }
+
+    public int size() { return value.length; }
+    public int getInt(int index) { if (ReadCounter.ENABLED) reads.record(); return value[index]; }
+
+    /**
+     * @return A copy of the current list.
+     */
+    @Override @NotNull public int[] get() { if (ReadCounter.ENABLED) reads.record(); return value.clone(); }
+    @Override public void set(int[] value) { this.value = value.clone(); onSet.run(); }
+    @Override public void onSet(Runnable listener) { this.onSet = listener; }
+    @Override @Nullable public ReadCounter readCounter() { return reads; }
+}
@@ -2,17 +2,22 @@ package com.alcatrazescapee.epsilon.value;
 
 import java.util.function.IntSupplier;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public final class IntValue implements IntSupplier, Value<Integer>
 {
-    private int value;
+    private volatile int value;
+    @Nullable private final ReadCounter reads = ReadCounter.create();
+    private volatile Runnable onSet = () -> {};
 
     public IntValue(int value)
     {
         this.value = value;
     }
 
-    @Override public int getAsInt() { return value; }
-    @Override @NotNull public Integer get() { return value; }
-    @Override public void set(Integer value) { this.value = value; }
+    @Override public int getAsInt() { if (ReadCounter.ENABLED) reads.record(); return value; }
+    @Override @NotNull public Integer get() { if (ReadCounter.ENABLED) reads.record(); return value; }
+    @Override public void set(Integer value) { this.value = value; onSet.run(); }
+    @Override public void onSet(Runnable listener) { this.onSet = listener; }
+    @Override @Nullable public ReadCounter readCounter() { return reads; }
 }
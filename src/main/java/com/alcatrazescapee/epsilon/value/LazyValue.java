@@ -0,0 +1,90 @@
+package com.alcatrazescapee.epsilon.value;
+
+import java.util.function.Function;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A value which is converted from its config value on the first call to {@link #get()}, and then memoized until it is next loaded or set. This is created by {@link com.alcatrazescapee.epsilon.Type#mapLazy}, for values which are expensive to convert, and rarely read.
+ */
+public final class LazyValue<T> implements Value<T>
+{
+    private volatile Memo<T> memo;
+    @Nullable private final ReadCounter reads = ReadCounter.create();
+    private volatile Runnable onSet = () -> {};
+
+    public LazyValue(T value)
+    {
+        this.memo = new Memo<>(null, null, value);
+    }
+
+    @Override public T get() { if (ReadCounter.ENABLED) reads.record(); return memo.get(); }
+    @Override public void set(T value) { this.memo = new Memo<>(null, null, value); onSet.run(); }
+    @Override public void onSet(Runnable listener) { this.onSet = listener; }
+    @Override @Nullable public ReadCounter readCounter() { return reads; }
+
+    /**
+     * Sets this value to be converted from {@code source} by {@code converter}, on the next call to {@link #get()}. If {@code source} is equal to the source this value was last loaded from, the existing value is kept, including if it has already been converted.
+     *
+     * @return {@code true} if the value was changed.
+     */
+    @SuppressWarnings("unchecked")
+    public <S> boolean defer(S source, Function<? super S, ? extends T> converter)
+    {
+        if (source.equals(memo.source))
+        {
+            return false;
+        }
+        this.memo = new Memo<>(source, (Function<Object, ? extends T>) converter, null);
+        return true;
+    }
+
+    /**
+     * @return {@code true} if this value has been loaded, but not yet converted.
+     */
+    public boolean isDeferred()
+    {
+        return memo.converter != null;
+    }
+
+    /**
+     * @return The raw config value this will be converted from, if it is {@link #isDeferred() deferred}, otherwise {@code null}. This allows the value to be written without converting it.
+     */
+    @Nullable
+    public Object source()
+    {
+        final Memo<T> memo = this.memo;
+        return memo.converter != null ? memo.source : null;
+    }
+
+    static final class Memo<T>
+    {
+        @Nullable final Object source;
+        @Nullable volatile Function<Object, ? extends T> converter;
+        @Nullable T value;
+
+        Memo(@Nullable Object source, @Nullable Function<Object, ? extends T> converter, @Nullable T value)
+        {
+            this.source = source;
+            this.converter = converter;
+            this.value = value;
+        }
+
+        @SuppressWarnings("ConstantConditions")
+        T get()
+        {
+            if (converter != null)
+            {
+                synchronized (this)
+                {
+                    final Function<Object, ? extends T> converter = this.converter;
+                    if (converter != null)
+                    {
+                        value = converter.apply(source);
+                        this.converter = null; // Publishes value, as converter is volatile
+                    }
+                }
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.alcatrazescapee.epsilon.value;
+
+import java.util.function.LongSupplier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public final class LongValue implements LongSupplier, Value<Long>
+{
+    private volatile long value;
+    @Nullable private final ReadCounter reads = ReadCounter.create();
+    private volatile Runnable onSet = () -> {};
+
+    public LongValue(long value)
+    {
+        this.value = value;
+    }
+
+    @Override public long getAsLong() { if (ReadCounter.ENABLED) reads.record(); return value; }
+    @Override @NotNull public Long get() { if (ReadCounter.ENABLED) reads.record(); return value; }
+    @Override public void set(Long value) { this.value = value; onSet.run(); }
+    @Override public void onSet(Runnable listener) { this.onSet = listener; }
+    @Override @Nullable public ReadCounter readCounter() { return reads; }
+}
@@ -0,0 +1,96 @@
+package com.alcatrazescapee.epsilon.value;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Counts the reads of a single value, in order to find values which are read on hot paths, or are never read at all. Read counts for a spec can be obtained from {@link com.alcatrazescapee.epsilon.Spec#reads()}.
+ * <p>
+ * Counting is disabled by default, and is enabled by running with {@code -Depsilon.countReads=true}. When disabled, no counters are created, and as {@link #ENABLED} is a constant, the check on each read is removed by the JIT.
+ * Additionally running with {@code -Depsilon.countReads.callers=true} records the class which made each read. This walks the stack on every read, so is much slower.
+ */
+public final class ReadCounter
+{
+    public static final boolean ENABLED = Boolean.getBoolean("epsilon.countReads");
+    public static final boolean CALLERS = ENABLED && Boolean.getBoolean("epsilon.countReads.callers");
+
+    private static final String PACKAGE = ReadCounter.class.getPackageName();
+    private static final ThreadLocal<Boolean> UNCOUNTED = ThreadLocal.withInitial(() -> false);
+    @Nullable private static final StackWalker WALKER = CALLERS ? StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE) : null;
+
+    /**
+     * @return A new counter, or {@code null} if counting is not enabled.
+     */
+    @Nullable
+    public static ReadCounter create()
+    {
+        return ENABLED ? new ReadCounter() : null;
+    }
+
+    /**
+     * Reads {@code value} without counting the read, for reads made by the library itself, i.e. when writing or reloading a config.
+     */
+    public static <T> T uncounted(Value<T> value)
+    {
+        if (!ENABLED)
+        {
+            return value.get();
+        }
+        final boolean previous = UNCOUNTED.get();
+        UNCOUNTED.set(true);
+        try
+        {
+            return value.get();
+        }
+        finally
+        {
+            UNCOUNTED.set(previous);
+        }
+    }
+
+    private final LongAdder count = new LongAdder();
+    private final Map<Class<?>, LongAdder> callers = new ConcurrentHashMap<>();
+
+    private ReadCounter() {}
+
+    void record()
+    {
+        if (UNCOUNTED.get())
+        {
+            return;
+        }
+        count.increment();
+        if (WALKER != null)
+        {
+            WALKER.walk(frames -> frames
+                .filter(frame -> !frame.getDeclaringClass().getPackageName().equals(PACKAGE))
+                .findFirst())
+                .ifPresent(frame -> callers.computeIfAbsent(frame.getDeclaringClass(), key -> new LongAdder()).increment());
+        }
+    }
+
+    /**
+     * @return The reads counted so far. Reads made concurrently with this call may or may not be included.
+     */
+    public Reads snapshot()
+    {
+        final Map<Class<?>, Long> snapshot = new HashMap<>();
+        callers.forEach((caller, reads) -> snapshot.put(caller, reads.sum()));
+        return new Reads(count.sum(), snapshot);
+    }
+
+    public void reset()
+    {
+        count.reset();
+        callers.clear();
+    }
+
+    /**
+     * @param count The total number of reads.
+     * @param callers The number of reads made by each calling class, if {@link #CALLERS} is enabled, otherwise empty.
+     */
+    public record Reads(long count, Map<Class<?>, Long> callers) {}
+}
@@ -1,16 +1,21 @@
 package com.alcatrazescapee.epsilon.value;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public final class TypeValue<T> implements Value<T>
 {
-    @NotNull private T value;
+    @NotNull private volatile T value;
+    @Nullable private final ReadCounter reads = ReadCounter.create();
+    private volatile Runnable onSet = () -> {};
 
     public TypeValue(@NotNull T value)
     {
         this.value = value;
     }
 
-    @Override @NotNull public T get() { return value; }
-    @Override public void set(T value) { this.value = value; }
+    @Override @NotNull public T get() { if (ReadCounter.ENABLED) reads.record(); return value; }
+    @Override public void set(T value) { this.value = value; onSet.run(); }
+    @Override public void onSet(Runnable listener) { this.onSet = listener; }
+    @Override @Nullable public ReadCounter readCounter() { return reads; }
 }
@@ -1,17 +1,41 @@
 package com.alcatrazescapee.epsilon.value;
 
 import java.util.function.Supplier;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * A wrapped representation of a type. This both implements {@link Supplier}, and type specific suppliers in derived classes where necessary.
+ * <p>
+ * Getters return the value from the latest load, without checking for a concurrent reload, so reading several values in turn may see some from one load, and some from the next. Use {@link com.alcatrazescapee.epsilon.Spec#read(Supplier)} to read related values from the same load.
  *
  * @see IntValue
+ * @see LongValue
  * @see FloatValue
+ * @see DoubleValue
  * @see BoolValue
+ * @see IntListValue
+ * @see FloatListValue
+ * @see BoolListValue
  * @see TypeValue
+ * @see LazyValue
  */
 public interface Value<T> extends Supplier<T>
 {
     @Override T get();
     void set(T value);
+
+    /**
+     * Sets a {@code listener} which is run, on the calling thread, after each call to {@link #set(Object)}, replacing any previous listener. Values which do not support listeners ignore it.
+     */
+    default void onSet(Runnable listener) {}
+
+    /**
+     * @return The counter of reads of this value, or {@code null} if reads are not counted.
+     * @see ReadCounter
+     */
+    @Nullable
+    default ReadCounter readCounter()
+    {
+        return null;
+    }
 }
@@ -1,16 +1,44 @@
 package com.alcatrazescapee.epsilon;
 
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.apache.commons.lang3.mutable.MutableBoolean;
+import org.apache.commons.lang3.mutable.MutableInt;
 import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import com.alcatrazescapee.epsilon.config.Comment;
+import com.alcatrazescapee.epsilon.config.Config;
+import com.alcatrazescapee.epsilon.config.Range;
+import com.alcatrazescapee.epsilon.value.BoolListValue;
 import com.alcatrazescapee.epsilon.value.BoolValue;
+import com.alcatrazescapee.epsilon.value.DoubleValue;
+import com.alcatrazescapee.epsilon.value.FloatListValue;
 import com.alcatrazescapee.epsilon.value.FloatValue;
+import com.alcatrazescapee.epsilon.value.IntListValue;
 import com.alcatrazescapee.epsilon.value.IntValue;
+import com.alcatrazescapee.epsilon.value.LazyValue;
+import com.alcatrazescapee.epsilon.value.LongValue;
+import com.alcatrazescapee.epsilon.value.ReadCounter;
 import com.alcatrazescapee.epsilon.value.TypeValue;
 
 import static org.assertj.core.api.Assertions.*;
@@ -208,6 +236,903 @@ public class IntegrationTests
         assertThat(boolValueInCategory.getAsBoolean()).isTrue();
     }
 
+    @Test
+    public void testCorrectingConfigOnlyPatchesInvalidValues() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+
+        final IntValue intValue = builder.comment("An int").define("intValue", 3, 1, 10);
+        final TypeValue<String> stringValue = builder.comment("A string").define("stringValue", "default");
+
+        builder.push("box");
+
+        final BoolValue boolValue = builder.define("boolValue", true);
+        final TypeValue<List<String>> listValue = builder.comment("A list").define("listValue", List.of("a", "b"));
+
+        builder.comment("An inner category").push("inner");
+
+        final FloatValue floatValue = builder.define("floatValue", 1.5f);
+
+        final Spec spec = builder.pop().pop().build();
+
+        final Path exampleConfig = Path.of("./build/example_patched_config.toml");
+        final Path patchedConfig = getResource("patched_config.toml");
+        Files.writeString(exampleConfig, String.join("\n",
+            "# My own comment",
+            "intValue   =  50 # too big",
+            "",
+            "[box]",
+            "    boolValue = false  # kept",
+            ""
+        ));
+
+        final List<String> errors = new ArrayList<>();
+        EpsilonUtil.parse(spec, exampleConfig, errors::add);
+
+        assertThat(errors).containsExactly(
+            "Reading intValue: Value 50 not in range [1, 10]",
+            "Missing value for: 'stringValue'",
+            "Missing value for: 'box.listValue'",
+            "Missing value for: 'box.inner.floatValue'"
+        );
+        assertThat(exampleConfig).hasSameTextualContentAs(patchedConfig);
+
+        // The patched config is complete, so loading it again does not report any errors
+        EpsilonUtil.parse(spec, exampleConfig, Assertions::fail, () -> fail("Should not overwrite"));
+
+        assertThat(intValue.getAsInt()).isEqualTo(3);
+        assertThat(stringValue.get()).isEqualTo("default");
+        assertThat(boolValue.getAsBoolean()).isFalse();
+        assertThat(listValue.get()).containsExactly("a", "b");
+        assertThat(floatValue.getAsFloat()).isEqualTo(1.5f);
+    }
+
+    @Test
+    public void testListenersAreNotifiedOfChanges()
+    {
+        final SpecBuilder builder = Spec.builder();
+
+        final IntValue intValue = builder.define("intValue", 3);
+        builder.push("box");
+        builder.define("boolValue", true);
+        builder.define("stringValue", "default");
+
+        final Spec spec = builder.pop().build();
+
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<Integer> intChanges = new ArrayList<>();
+        final MutableInt boxChanges = new MutableInt(0);
+
+        spec.onChange(intValue, tasks::add, intChanges::add);
+        spec.onChange("box", tasks::add, boxChanges::increment);
+
+        // Only box values change, and the listener is notified once for both
+        spec.parse("intValue = 3\n[box]\nboolValue = false\nstringValue = \"changed\"\n", Assertions::fail);
+
+        assertThat(tasks).hasSize(1);
+        tasks.remove(0).run();
+        assertThat(intChanges).isEmpty();
+        assertThat(boxChanges.intValue()).isEqualTo(1);
+
+        // Notifications which have not yet run are coalesced, and see the latest value
+        spec.parse("intValue = 5\n[box]\nboolValue = false\nstringValue = \"changed\"\n", Assertions::fail);
+        spec.parse("intValue = 7\n[box]\nboolValue = false\nstringValue = \"changed\"\n", Assertions::fail);
+
+        assertThat(tasks).hasSize(1);
+        tasks.remove(0).run();
+        assertThat(intChanges).containsExactly(7);
+        assertThat(boxChanges.intValue()).isEqualTo(1);
+
+        // Resetting to defaults is a change like any other
+        spec.reset();
+
+        assertThat(tasks).hasSize(2);
+        tasks.forEach(Runnable::run);
+        assertThat(intChanges).containsExactly(7, 3);
+        assertThat(boxChanges.intValue()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRejectedListenersDoNotPreventOtherListeners()
+    {
+        final SpecBuilder builder = Spec.builder();
+        final IntValue intValue = builder.define("intValue", 3);
+        final Spec spec = builder.build();
+
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<Integer> intChanges = new ArrayList<>();
+
+        spec.onChange(intValue, task -> { throw new RejectedExecutionException("Shut down"); }, value -> fail("Should not be notified"));
+        spec.onChange(intValue, tasks::add, intChanges::add);
+
+        final List<String> errors = new ArrayList<>();
+        spec.parse("intValue = 5\n", errors::add);
+
+        assertThat(intValue.getAsInt()).isEqualTo(5);
+        assertThat(errors).containsExactly("Unable to notify listener for: 'intValue': java.util.concurrent.RejectedExecutionException: Shut down");
+        assertThat(tasks).hasSize(1);
+        tasks.remove(0).run();
+        assertThat(intChanges).containsExactly(5);
+    }
+
+    @Test
+    public void testParsingMultipleConfigs() throws Exception
+    {
+        final List<EpsilonUtil.ConfigFile> files = new ArrayList<>();
+        final List<IntValue> values = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+        {
+            final SpecBuilder builder = Spec.builder();
+            values.add(builder.define("intValue", 3, 1, 10));
+
+            final Path path = Path.of("./build/example_multiple_config_" + i + ".toml");
+            Files.writeString(path, "intValue = " + (i * 2) + "\n");
+            files.add(new EpsilonUtil.ConfigFile(builder.build(), path));
+        }
+
+        final EpsilonUtil.ParseAllResult result = EpsilonUtil.parseAll(files);
+
+        assertThat(result.hasErrors()).isTrue();
+        assertThat(result.files()).extracting(EpsilonUtil.FileResult::path).containsExactlyElementsOf(files.stream().map(EpsilonUtil.ConfigFile::path).toList());
+        assertThat(result.files()).extracting(EpsilonUtil.FileResult::errors).containsExactly(
+            List.of("Reading intValue: Value 0 not in range [1, 10]"),
+            List.of(), List.of(), List.of(), List.of(), List.of(),
+            List.of("Reading intValue: Value 12 not in range [1, 10]"),
+            List.of("Reading intValue: Value 14 not in range [1, 10]")
+        );
+        assertThat(values).extracting(IntValue::getAsInt).containsExactly(3, 2, 4, 6, 8, 10, 3, 3);
+    }
+
+    @Test
+    public void testLazyValuesAreValidatedOnLoadAndConvertedOnRead() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+        final List<String> converted = new ArrayList<>();
+
+        final LazyValue<Pattern> patternValue = builder.define("patternValue", Pattern.compile("a+"), Type.STRING.mapLazy(value -> {
+            if (value.isEmpty()) throw new ParseError("Pattern must not be empty");
+        }, value -> {
+            converted.add(value);
+            return Pattern.compile(value);
+        }, Pattern::pattern));
+
+        final Spec spec = builder.build();
+
+        spec.parse("patternValue = \"b+\"", Assertions::fail);
+
+        assertThat(converted).isEmpty();
+        assertThat(patternValue.get().pattern()).isEqualTo("b+");
+        assertThat(patternValue.get().pattern()).isEqualTo("b+");
+        assertThat(converted).containsExactly("b+");
+
+        // Reloading the same raw value keeps the converted value
+        spec.parse("patternValue = \"b+\"", Assertions::fail);
+
+        assertThat(patternValue.get().pattern()).isEqualTo("b+");
+        assertThat(converted).containsExactly("b+");
+
+        // Validation errors are reported on load
+        final List<String> errors = new ArrayList<>();
+        spec.parse("patternValue = \"\"", errors::add);
+
+        assertThat(errors).containsExactly("Reading patternValue: Pattern must not be empty");
+        assertThat(patternValue.get().pattern()).isEqualTo("a+");
+        assertThat(converted).containsExactly("b+");
+
+        // Replacing a value which was never read, with a value which is not deferred, does not convert it
+        spec.parse("patternValue = \"c+\"", Assertions::fail);
+        spec.parse("", error -> {});
+
+        assertThat(patternValue.get().pattern()).isEqualTo("a+");
+        assertThat(converted).containsExactly("b+");
+
+        // Writing a value which was never read does not convert it
+        spec.parse("patternValue = \"d+\"", Assertions::fail);
+        final StringBuilder output = new StringBuilder();
+        EpsilonUtil.write(spec, output);
+
+        assertThat(output.toString()).contains("patternValue = \"d+\"");
+        assertThat(converted).containsExactly("b+");
+    }
+
+    @Test
+    public void testLoadingPrimitiveListValues() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+
+        final IntListValue intListValue = builder.define("intListValue", new int[] {1, 2});
+        final FloatListValue floatListValue = builder.define("floatListValue", new float[] {0.5f});
+        final FloatListValue floatListValueFromInts = builder.define("floatListValueFromInts", new float[] {0.5f});
+        final BoolListValue boolListValue = builder.define("boolListValue", new boolean[] {false});
+
+        final Spec spec = builder.build();
+
+        spec.parse(String.join("\n",
+            "intListValue = [3, 4, 5]",
+            "floatListValue = [1.5, 2, 3.25]",
+            "floatListValueFromInts = [1, 2]",
+            "boolListValue = [true, false, false, true]"
+        ), Assertions::fail);
+
+        assertThat(intListValue.size()).isEqualTo(3);
+        assertThat(intListValue.getInt(2)).isEqualTo(5);
+        assertThat(intListValue.get()).containsExactly(3, 4, 5);
+        assertThat(floatListValue.get()).containsExactly(1.5f, 2f, 3.25f);
+        assertThat(floatListValueFromInts.get()).containsExactly(1f, 2f);
+        assertThat(boolListValue.size()).isEqualTo(4);
+        assertThat(boolListValue.getBoolean(3)).isTrue();
+        assertThat(boolListValue.get()).containsExactly(true, false, false, true);
+
+        final StringBuilder output = new StringBuilder();
+        EpsilonUtil.write(spec, output);
+
+        assertThat(output.toString()).isEqualTo(String.join("\n",
+            "intListValue = [3, 4, 5]",
+            "",
+            "floatListValue = [1.5, 2.0, 3.25]",
+            "",
+            "floatListValueFromInts = [1.0, 2.0]",
+            "",
+            "boolListValue = [true, false, false, true]",
+            "",
+            ""
+        ));
+
+        final List<String> errors = new ArrayList<>();
+        spec.parse("intListValue = [1, 2.5]\nfloatListValue = [true]\nfloatListValueFromInts = [1, 2]\nboolListValue = [1]", errors::add);
+
+        assertThat(errors).containsExactly(
+            "Reading intListValue: Cannot convert 2.5 to int",
+            "Reading floatListValue: Cannot convert true to float",
+            "Reading boolListValue: Cannot convert 1 to boolean"
+        );
+        assertThat(intListValue.get()).containsExactly(1, 2);
+    }
+
+    @Test
+    public void testDiagnosticsAreStructuredAndCapped() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+        final List<IntValue> values = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            values.add(builder.define("value" + i, 3, 1, 10));
+        }
+        builder.push("category");
+        final IntValue missingValue = builder.define("missingValue", 3);
+        final Spec spec = builder.pop().build();
+
+        final Path exampleConfig = Path.of("./build/example_diagnostics_config.toml");
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10; i++)
+        {
+            text.append("value").append(i).append(" = ").append(i == 1 ? "5" : "50").append('\n');
+        }
+        Files.writeString(exampleConfig, text);
+
+        final Diagnostics diagnostics = Diagnostics.create(2);
+        EpsilonUtil.parse(spec, exampleConfig, diagnostics);
+
+        assertThat(diagnostics.count()).isEqualTo(10);
+        assertThat(diagnostics.isTruncated()).isTrue();
+        assertThat(diagnostics.entries()).containsExactly(
+            new Diagnostic(Diagnostic.Kind.INVALID, "value0", 1, 10, diagnostics.entries().get(0).cause()),
+            new Diagnostic(Diagnostic.Kind.INVALID, "value2", 3, 10, diagnostics.entries().get(1).cause())
+        );
+        assertThat(diagnostics.entries().get(0).message()).isEqualTo("Reading value0: Value 50 not in range [1, 10]");
+        assertThat(diagnostics.entries().get(0).cause()).isInstanceOf(ParseError.class);
+        assertThat(diagnostics.entries().get(0).cause().getStackTrace()).isEmpty();
+        assertThat(diagnostics.entries().get(1)).hasToString("3:10: Reading value2: Value 50 not in range [1, 10]");
+
+        assertThat(values.get(1).getAsInt()).isEqualTo(5);
+        assertThat(missingValue.getAsInt()).isEqualTo(3);
+    }
+
+    @Test
+    public void testLoadingLongAndDoubleValues() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+
+        final LongValue longValue = builder.define("longValue", 1L);
+        final LongValue longValueWithRange = builder.define("longValueWithRange", 1L, 0L, 10_000_000_000L);
+        final DoubleValue doubleValue = builder.define("doubleValue", 0.5);
+        final FloatValue floatValueFromDouble = builder.define("floatValueFromDouble", 0.5f);
+
+        final Spec spec = builder.build();
+
+        final Path exampleConfig = Path.of("./build/example_long_double_config.toml");
+        Files.writeString(exampleConfig, String.join("\n",
+            "longValue = 1700000000000",
+            "longValueWithRange = 20000000000",
+            "doubleValue = 0.1234567890123",
+            "floatValueFromDouble = 0.1234567890123"
+        ));
+
+        final List<String> errors = new ArrayList<>();
+        EpsilonUtil.parse(spec, exampleConfig, errors::add, () -> {});
+
+        assertThat(errors).containsExactly("Reading longValueWithRange: Value 20000000000 not in range [0, 10000000000]");
+        assertThat(longValue.getAsLong()).isEqualTo(1700000000000L);
+        assertThat(longValueWithRange.getAsLong()).isEqualTo(1L);
+        assertThat(doubleValue.getAsDouble()).isEqualTo(0.1234567890123);
+        assertThat(floatValueFromDouble.getAsFloat()).isEqualTo(0.1234567890123f);
+    }
+
+    @Test
+    public void testLoadingFloatValuesOutOfRange() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+
+        final FloatValue floatValueOverflow = builder.define("floatValueOverflow", 0.5f);
+        final FloatValue floatValueUnderflow = builder.define("floatValueUnderflow", 0.5f);
+        final FloatValue floatValueFromLong = builder.define("floatValueFromLong", 0.5f);
+        final FloatValue floatValueFromInexactLong = builder.define("floatValueFromInexactLong", 0.5f);
+
+        final Spec spec = builder.build();
+
+        final Path exampleConfig = Path.of("./build/example_float_range_config.toml");
+        Files.writeString(exampleConfig, String.join("\n",
+            "floatValueOverflow = 1e300",
+            "floatValueUnderflow = 1e-300",
+            "floatValueFromLong = 17179869184",
+            "floatValueFromInexactLong = 17179869185"
+        ));
+
+        final List<String> errors = new ArrayList<>();
+        EpsilonUtil.parse(spec, exampleConfig, errors::add, () -> {});
+
+        assertThat(errors).containsExactly(
+            "Reading floatValueOverflow: Cannot convert 1.0E300 to float: out of range",
+            "Reading floatValueUnderflow: Cannot convert 1.0E-300 to float: out of range",
+            "Reading floatValueFromInexactLong: Cannot convert 17179869185 to float without losing precision"
+        );
+        assertThat(floatValueOverflow.getAsFloat()).isEqualTo(0.5f);
+        assertThat(floatValueUnderflow.getAsFloat()).isEqualTo(0.5f);
+        assertThat(floatValueFromLong.getAsFloat()).isEqualTo(17179869184f);
+        assertThat(floatValueFromInexactLong.getAsFloat()).isEqualTo(0.5f);
+    }
+
+    @Test
+    public void testWatchingConfigReloadsChangedValues() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+
+        final IntValue intValue = builder.define("intValue", 3);
+        final TypeValue<String> stringValue = builder.define("stringValue", "default");
+
+        final Spec spec = builder.build();
+
+        final Path exampleConfig = Path.of("./build/example_watch_config.toml");
+        Files.writeString(exampleConfig, "intValue = 5\nstringValue = \"first\"\n");
+
+        EpsilonUtil.parse(spec, exampleConfig, Assertions::fail, () -> fail("Should not overwrite"));
+
+        assertThat(intValue.getAsInt()).isEqualTo(5);
+        assertThat(stringValue.get()).isEqualTo("first");
+
+        final List<String> errors = new CopyOnWriteArrayList<>();
+        try (final ConfigWatcher ignored = EpsilonUtil.watch(spec, exampleConfig, errors::add, Duration.ofMillis(50)))
+        {
+            Files.writeString(exampleConfig, "intValue = 7\n");
+
+            final long deadline = System.currentTimeMillis() + 10_000;
+            while (!stringValue.get().equals("default") && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(10);
+            }
+        }
+
+        assertThat(intValue.getAsInt()).isEqualTo(7);
+        assertThat(stringValue.get()).isEqualTo("default");
+        assertThat(errors).containsExactly("Missing value for: 'stringValue'");
+    }
+
+    @Test
+    public void testWatchingConfigKeepsValuesOnSyntaxError() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+
+        final IntValue intValue = builder.define("intValue", 3);
+        final TypeValue<String> stringValue = builder.define("stringValue", "default");
+
+        final Spec spec = builder.build();
+
+        final Path exampleConfig = Path.of("./build/example_watch_syntax_config.toml");
+        Files.writeString(exampleConfig, "intValue = 5\nstringValue = \"first\"\n");
+
+        EpsilonUtil.parse(spec, exampleConfig, Assertions::fail, () -> fail("Should not overwrite"));
+
+        final long generation = spec.generation();
+        final List<String> errors = new CopyOnWriteArrayList<>();
+        try (final ConfigWatcher ignored = EpsilonUtil.watch(spec, exampleConfig, errors::add, Duration.ofMillis(50)))
+        {
+            Files.writeString(exampleConfig, "intValue = 7\nstringValue = \"sec");
+
+            final long deadline = System.currentTimeMillis() + 10_000;
+            while (errors.isEmpty() && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(10);
+            }
+        }
+
+        assertThat(spec.generation()).isEqualTo(generation);
+        assertThat(intValue.getAsInt()).isEqualTo(5);
+        assertThat(stringValue.get()).isEqualTo("first");
+        assertThat(errors).hasSize(1).allMatch(error -> error.contains("invalid syntax"));
+    }
+
+    @Test
+    public void testLoadingConfigFromSnapshot() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+
+        final IntValue intValue = builder.define("intValue", 3);
+        final TypeValue<List<String>> listValue = builder.push("category").define("listValue", List.of("a"));
+
+        final Spec spec = builder.pop().build();
+
+        final Path exampleConfig = Path.of("./build/example_snapshot_config.toml");
+        final Path snapshot = Path.of("./build/example_snapshot_config.bin");
+        Files.writeString(exampleConfig, "intValue = 5\n[category]\nlistValue = [\"b\", \"c\"]\n");
+        Files.deleteIfExists(snapshot);
+
+        EpsilonUtil.parseCached(spec, exampleConfig, snapshot, Assertions::fail);
+
+        assertThat(snapshot).exists();
+        assertThat(intValue.getAsInt()).isEqualTo(5);
+        assertThat(listValue.get()).containsExactly("b", "c");
+
+        // Loads from the snapshot, as the file is unchanged
+        spec.reset();
+        final byte[] snapshotBytes = Files.readAllBytes(snapshot);
+        EpsilonUtil.parseCached(spec, exampleConfig, snapshot, Assertions::fail);
+
+        assertThat(snapshot).hasBinaryContent(snapshotBytes);
+        assertThat(intValue.getAsInt()).isEqualTo(5);
+        assertThat(listValue.get()).containsExactly("b", "c");
+
+        // The file has changed, so the snapshot is stale
+        Files.writeString(exampleConfig, "intValue = 7\n[category]\nlistValue = []\n");
+        final List<String> errors = new ArrayList<>();
+        EpsilonUtil.parseCached(spec, exampleConfig, snapshot, errors::add);
+
+        assertThat(intValue.getAsInt()).isEqualTo(7);
+        assertThat(listValue.get()).containsExactly("a");
+        assertThat(errors).containsExactly("Missing value for: 'category.listValue'");
+    }
+
+    @Test
+    public void testSnapshotsWithInvalidLengthsAreIgnored() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+        final TypeValue<String> stringValue = builder.define("stringValue", "a");
+        final Spec spec = builder.build();
+
+        final Path exampleConfig = Path.of("./build/example_corrupt_snapshot_config.toml");
+        final Path snapshot = Path.of("./build/example_corrupt_snapshot_config.bin");
+        Files.writeString(exampleConfig, "stringValue = \"abc\"\n");
+        Files.deleteIfExists(snapshot);
+
+        EpsilonUtil.parseCached(spec, exampleConfig, snapshot, Assertions::fail);
+
+        final byte[] snapshotBytes = Files.readAllBytes(snapshot);
+        for (int length : new int[] {Integer.MAX_VALUE, -1, 4})
+        {
+            // The snapshot ends with the length and bytes of the only string value, so replace the length
+            final byte[] corrupt = snapshotBytes.clone();
+            ByteBuffer.wrap(corrupt, corrupt.length - 7, 4).putInt(length);
+            Files.write(snapshot, corrupt);
+
+            spec.reset();
+            EpsilonUtil.parseCached(spec, exampleConfig, snapshot, Assertions::fail);
+
+            assertThat(stringValue.get()).isEqualTo("abc");
+            assertThat(snapshot).hasBinaryContent(snapshotBytes);
+        }
+    }
+
+    @Test
+    public void testGeneratedConfigReadsFromSnapshot() throws Exception
+    {
+        final IntegrationTests_ExampleConfigSpec config = new IntegrationTests_ExampleConfigSpec();
+        final ExampleConfig defaults = config.get();
+
+        assertThat(defaults.port()).isEqualTo(8080);
+        assertThat(defaults.day()).isEqualTo(Day.MONDAY);
+        assertThat(defaults.name()).isEqualTo("example");
+        assertThat(defaults.limits().ratio()).isEqualTo(0.5f);
+        assertThat(defaults.limits().enabled()).isEqualTo(new boolean[] {true, false});
+
+        final Path exampleConfig = Path.of("./build/example_generated_config.toml");
+        Files.writeString(exampleConfig, "port = 25565\nday = \"FRIDAY\"\nname = \"server\"\n[limits]\nratio = 2.0\nenabled = [false]\n");
+        final List<String> errors = new ArrayList<>();
+        EpsilonUtil.parse(config.spec(), exampleConfig, errors::add);
+
+        final ExampleConfig loaded = config.get();
+        assertThat(errors).containsExactly("Reading limits.ratio: Value 2.0 not in range [0.0, 1.0]");
+        assertThat(loaded.port()).isEqualTo(25565);
+        assertThat(loaded.day()).isEqualTo(Day.FRIDAY);
+        assertThat(loaded.name()).isEqualTo("server"); // Inherited values are also loaded
+        assertThat(loaded.limits().ratio()).isEqualTo(0.5f);
+        assertThat(loaded.limits().enabled()).isEqualTo(new boolean[] {false});
+
+        // Snapshots are immutable, so the previous snapshot still reports the defaults
+        assertThat(defaults.port()).isEqualTo(8080);
+        assertThat(Files.readString(exampleConfig)).contains("ratio = 0.5");
+    }
+
+    @Test
+    public void testReadsAreNotCountedByDefault()
+    {
+        final SpecBuilder builder = Spec.builder();
+        final IntValue intValue = builder.define("intValue", 3);
+        final Spec spec = builder.build();
+
+        assertThat(intValue.getAsInt()).isEqualTo(3);
+        assertThat(intValue.readCounter()).isNull();
+        assertThatThrownBy(spec::reads).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @Tag("countReads")
+    public void testReadsAreCountedPerValue() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+        final IntValue intValue = builder.define("intValue", 3);
+        builder.push("category");
+        final TypeValue<String> unusedValue = builder.define("unusedValue", "unused");
+        final Spec spec = builder.pop().build();
+
+        final Path exampleConfig = Path.of("./build/example_read_counts_config.toml");
+        Files.writeString(exampleConfig, "intValue = 5\n");
+        EpsilonUtil.parse(spec, exampleConfig, e -> {});
+
+        int total = 0;
+        for (int i = 0; i < 3; i++)
+        {
+            total += intValue.getAsInt();
+        }
+
+        assertThat(total).isEqualTo(15);
+        assertThat(spec.reads()).containsExactly(
+            entry("intValue", new ReadCounter.Reads(3, Map.of(IntegrationTests.class, 3L))),
+            entry("category.unusedValue", new ReadCounter.Reads(0, Map.of()))
+        );
+        assertThat(Files.readString(exampleConfig)).contains("unusedValue = \"unused\"");
+    }
+
+    @Test
+    public void testLoadReportsEachPhaseAsFlightRecorderEvents() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+        final IntValue intValue = builder.define("intValue", 3);
+        final BoolValue boolValue = builder.define("boolValue", false);
+        final Spec spec = builder.build();
+
+        final Path exampleConfig = Path.of("./build/example_load_report_config.toml");
+        final Path recordingFile = Path.of("./build/example_load_report.jfr");
+        Files.writeString(exampleConfig, "intValue = 5\nboolValue = 3\nunknownValue = 7\n");
+
+        final LoadReport report;
+        try (final Recording recording = new Recording())
+        {
+            for (String phase : List.of("Read", "Bind", "Load", "Write"))
+            {
+                recording.enable("com.alcatrazescapee.epsilon." + phase);
+            }
+            recording.start();
+            report = EpsilonUtil.parseWithReport(spec, exampleConfig, e -> {});
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        assertThat(intValue.getAsInt()).isEqualTo(5);
+        assertThat(boolValue.getAsBoolean()).isFalse();
+        assertThat(report.fileSize()).isEqualTo(44);
+        assertThat(report.tokens()).isEqualTo(9);
+        assertThat(report.keys()).isEqualTo(3);
+        assertThat(report.errors()).isEqualTo(1);
+        assertThat(report.written()).isTrue();
+        assertThat(report.total()).isGreaterThanOrEqualTo(report.read().plus(report.bind()).plus(report.load()).plus(report.write()));
+
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        assertThat(events)
+            .extracting(event -> event.getEventType().getName())
+            .containsExactlyInAnyOrder("com.alcatrazescapee.epsilon.Read", "com.alcatrazescapee.epsilon.Bind", "com.alcatrazescapee.epsilon.Load", "com.alcatrazescapee.epsilon.Write");
+        assertThat(events)
+            .filteredOn(event -> event.getEventType().getName().equals("com.alcatrazescapee.epsilon.Write"))
+            .singleElement()
+            .satisfies(event -> {
+                assertThat(event.getString("path")).isEqualTo(exampleConfig.toString());
+                assertThat(event.getLong("fileSize")).isEqualTo(44);
+                assertThat(event.getInt("tokens")).isEqualTo(9);
+                assertThat(event.getInt("keys")).isEqualTo(3);
+                assertThat(event.getInt("errors")).isEqualTo(1);
+            });
+    }
+
+    @Test
+    public void testIncludedFilesAreMergedInOrder() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+        final IntValue intValue = builder.define("intValue", 0);
+        final BoolValue boolValue = builder.define("boolValue", false);
+        final FloatValue floatValue = builder.define("floatValue", 0f);
+        builder.push("category");
+        final TypeValue<String> stringValue = builder.define("stringValue", "default");
+        final Spec spec = builder.pop().build();
+
+        final Path directory = Files.createDirectories(Path.of("./build/example_includes"));
+        final Path exampleConfig = directory.resolve("config.toml");
+        final String text = "include \"base.toml\"\ninclude \"host.toml\"\ninclude \"missing.toml\"\nfloatValue = 9.0\n";
+        Files.createDirectories(directory.resolve("nested"));
+        Files.writeString(exampleConfig, text);
+        Files.writeString(directory.resolve("base.toml"), "intValue = 1\nboolValue = true\n[category]\nstringValue = \"base\"\n");
+        Files.writeString(directory.resolve("host.toml"), "include \"nested/extra.toml\"\n[category]\nstringValue = \"host\"\n");
+        Files.writeString(directory.resolve("nested/extra.toml"), "include \"../host.toml\"\nintValue = 2\nfloatValue = 2.5\n");
+
+        final List<String> errors = new ArrayList<>();
+        EpsilonUtil.parse(spec, exampleConfig, errors::add);
+
+        assertThat(errors).containsExactlyInAnyOrder(
+            "Unable to include file: '" + directory.resolve("host.toml").toAbsolutePath().normalize() + "': Circular include",
+            "Unable to include file: '" + directory.resolve("missing.toml").toAbsolutePath().normalize() + "': java.nio.file.NoSuchFileException: " + directory.resolve("missing.toml").toAbsolutePath().normalize()
+        );
+        assertThat(intValue.getAsInt()).isEqualTo(2); // host.toml, via nested/extra.toml, overrides base.toml
+        assertThat(boolValue.getAsBoolean()).isTrue();
+        assertThat(floatValue.getAsFloat()).isEqualTo(9.0f); // The including file overrides all fragments
+        assertThat(stringValue.get()).isEqualTo("host");
+        assertThat(exampleConfig).hasContent(text);
+
+        // Only changed fragments are parsed again, but all changes are reflected
+        Files.writeString(directory.resolve("base.toml"), "boolValue = false\n");
+        EpsilonUtil.parse(spec, exampleConfig, e -> {});
+
+        assertThat(intValue.getAsInt()).isEqualTo(2);
+        assertThat(boolValue.getAsBoolean()).isFalse();
+        assertThat(stringValue.get()).isEqualTo("host");
+    }
+
+    @Test
+    public void testIncludedFilesAreLoadedWithoutCorrectionOrSnapshot() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+        final IntValue intValue = builder.define("intValue", 0);
+        final TypeValue<String> stringValue = builder.define("stringValue", "default");
+        final Spec spec = builder.build();
+
+        final Path directory = Files.createDirectories(Path.of("./build/example_includes_cached"));
+        final Path exampleConfig = directory.resolve("config.toml");
+        final Path snapshot = directory.resolve("config.bin");
+        final String text = "include \"base.toml\"\nstringValue = \"main\"\n";
+        Files.writeString(exampleConfig, text);
+        Files.writeString(directory.resolve("base.toml"), "intValue = 1\n");
+        Files.deleteIfExists(snapshot);
+
+        EpsilonUtil.parse(spec, exampleConfig, Assertions::fail, () -> fail("Should not overwrite"));
+
+        assertThat(intValue.getAsInt()).isEqualTo(1);
+        assertThat(stringValue.get()).isEqualTo("main");
+
+        EpsilonUtil.parseCached(spec, exampleConfig, snapshot, Assertions::fail);
+
+        assertThat(intValue.getAsInt()).isEqualTo(1);
+        assertThat(snapshot).doesNotExist();
+        assertThat(exampleConfig).hasContent(text);
+
+        // Changes to included files are always reflected, as there is no snapshot of the including file
+        Files.writeString(directory.resolve("base.toml"), "intValue = 2\n");
+        EpsilonUtil.parseCached(spec, exampleConfig, snapshot, Assertions::fail);
+
+        assertThat(intValue.getAsInt()).isEqualTo(2);
+        assertThat(exampleConfig).hasContent(text);
+    }
+
+    @Test
+    public void testIncludesMustBeRelativeAndWithinTheConfigDirectory() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+        final IntValue intValue = builder.define("intValue", 0);
+        final TypeValue<String> stringValue = builder.define("stringValue", "default");
+        final Spec spec = builder.build();
+
+        final Path directory = Files.createDirectories(Path.of("./build/example_includes_escape/config"));
+        final Path exampleConfig = directory.resolve("config.toml");
+        Files.writeString(exampleConfig, "include \"/etc/hostname\"\ninclude \"../x.toml\"\ninclude \"inner.toml\"\n");
+        Files.writeString(directory.resolve("../x.toml"), "intValue = 5\n");
+        Files.writeString(directory.resolve("inner.toml"), "stringValue = \"inner\"\n");
+
+        final List<String> errors = new ArrayList<>();
+        EpsilonUtil.parse(spec, exampleConfig, errors::add);
+
+        assertThat(errors)
+            .filteredOn(error -> error.startsWith("Unable to include file"))
+            .hasSize(2)
+            .allMatch(error -> error.contains("Include path must be"));
+        assertThat(intValue.getAsInt()).isEqualTo(0);
+        assertThat(stringValue.get()).isEqualTo("inner");
+    }
+
+    @Test
+    public void testIncludesAreNotFollowedWithLimits()
+    {
+        final SpecBuilder builder = Spec.builder();
+        builder.define("intValue", 0);
+        final Spec spec = builder.build();
+
+        assertThat(spec.parse("include \"base.toml\"\nintValue = 1\n", error -> {})).isFalse();
+        spec.setLimits(new TomlUtil.Limits(Integer.MAX_VALUE, 256, Integer.MAX_VALUE));
+        assertThat(spec.parse("include \"base.toml\"\nintValue = 1\n", error -> {})).isTrue();
+    }
+
+    @Test
+    public void testOverrideSourcesTakePrecedenceAndAreNotWritten() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+        final IntValue intValue = builder.define("intValue", 3);
+        final TypeValue<String> stringValue = builder.define("stringValue", "a");
+        builder.push("category");
+        final IntValue maxValue = builder.define("maxValue", 10, 1, 100);
+        final Spec spec = builder.pop().build();
+
+        final Map<String, Object> overrides = new HashMap<>(Map.of("intValue", 7));
+        spec.addSource(Source.systemProperties("epsilon.test."));
+        spec.addSource(Source.of("runtime", overrides));
+
+        final Path exampleConfig = Path.of("./build/example_override_config.toml");
+        Files.writeString(exampleConfig, "intValue = 5\n[category]\nmaxValue = 500\n");
+        final List<String> errors = new ArrayList<>();
+        System.setProperty("epsilon.test.intValue", "not a number");
+        System.setProperty("epsilon.test.category.maxValue", "50");
+        try
+        {
+            EpsilonUtil.parse(spec, exampleConfig, errors::add);
+        }
+        finally
+        {
+            System.clearProperty("epsilon.test.intValue");
+            System.clearProperty("epsilon.test.category.maxValue");
+        }
+
+        assertThat(errors).hasSize(3);
+        assertThat(errors.get(0)).isEqualTo("Missing value for: 'stringValue'");
+        assertThat(errors.get(1)).isEqualTo("Reading category.maxValue: Value 500 not in range [1, 100]");
+        assertThat(errors.get(2)).startsWith("Invalid override for intValue from system properties: ");
+
+        assertThat(intValue.getAsInt()).isEqualTo(7);
+        assertThat(maxValue.getAsInt()).isEqualTo(50);
+        assertThat(stringValue.get()).isEqualTo("a");
+        assertThat(spec.origin(intValue)).isEqualTo("runtime");
+        assertThat(spec.origin(maxValue)).isEqualTo("system properties");
+        assertThat(spec.origin(stringValue)).isEqualTo(Source.DEFAULT);
+
+        // Overridden values are corrected, or kept, as they were in the file
+        assertThat(Files.readString(exampleConfig)).isEqualTo("intValue = 5\n\nstringValue = \"a\"\n[category]\nmaxValue = 10\n");
+
+        overrides.clear();
+        EpsilonUtil.parse(spec, exampleConfig, errors::add);
+
+        assertThat(intValue.getAsInt()).isEqualTo(5);
+        assertThat(maxValue.getAsInt()).isEqualTo(10);
+        assertThat(spec.origin(intValue)).isEqualTo(Source.FILE);
+        assertThat(Source.environmentName("APP", "category.maxValue")).isEqualTo("APP_CATEGORY_MAX_VALUE");
+        assertThat(TomlUtil.parseValue("[1, 2]")).isEqualTo(List.of(1, 2));
+        assertThat(TomlUtil.parseValue("example.com")).isEqualTo("example.com");
+    }
+
+    @Test
+    public void testParsingAndWritingAsynchronously() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+        final IntValue intValue = builder.define("intValue", 3, 1, 10);
+        final TypeValue<String> stringValue = builder.define("stringValue", "a");
+        final Spec spec = builder.build();
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            final Path exampleConfig = Path.of("./build/example_async_config.toml");
+            Files.deleteIfExists(exampleConfig);
+
+            // Creates a new config, with the default values
+            final LoadReport created = EpsilonUtil.parseAsync(spec, exampleConfig, Assertions::fail, executor).get(10, TimeUnit.SECONDS);
+            assertThat(created.written()).isTrue();
+            assertThat(exampleConfig).hasContent("# Range: [1, 10]\nintValue = 3\n\nstringValue = \"a\"\n\n");
+
+            // Loads, and corrects, an existing config
+            Files.writeString(exampleConfig, "intValue = 50\nstringValue = \"b\"\n");
+            final List<String> errors = new ArrayList<>();
+            final LoadReport loaded = EpsilonUtil.parseAsync(spec, exampleConfig, errors::add, executor).get(10, TimeUnit.SECONDS);
+
+            assertThat(errors).containsExactly("Reading intValue: Value 50 not in range [1, 10]");
+            assertThat(loaded.written()).isTrue();
+            assertThat(loaded.fileSize()).isEqualTo(32);
+            assertThat(intValue.getAsInt()).isEqualTo(3);
+            assertThat(stringValue.get()).isEqualTo("b");
+            assertThat(exampleConfig).hasContent("intValue = 3\nstringValue = \"b\"\n");
+
+            stringValue.set("c");
+            EpsilonUtil.writeAsync(spec, exampleConfig, executor).get(10, TimeUnit.SECONDS);
+            assertThat(exampleConfig).hasContent("# Range: [1, 10]\nintValue = 3\n\nstringValue = \"c\"\n\n");
+
+            // Write errors complete the future exceptionally
+            assertThatThrownBy(() -> EpsilonUtil.writeAsync(spec, Path.of("./build/missing_directory/config.toml"), executor).get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(NoSuchFileException.class);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testWriteBehindCoalescesChangesIntoOneWrite() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+        final IntValue intValue = builder.define("intValue", 3, 1, 10);
+        final TypeValue<String> stringValue = builder.define("stringValue", "a");
+        final Spec spec = builder.build();
+
+        final Path exampleConfig = Path.of("./build/example_write_behind_config.toml");
+        Files.writeString(exampleConfig, "# Kept\nintValue = 5\nstringValue = \"b\"\n");
+        EpsilonUtil.parse(spec, exampleConfig, Assertions::fail);
+
+        final List<String> errors = new CopyOnWriteArrayList<>();
+        try (final WriteBehind writeBehind = EpsilonUtil.writeBehind(spec, exampleConfig, errors::add, Duration.ofSeconds(60)))
+        {
+            intValue.set(6);
+            intValue.set(7);
+            stringValue.set("c");
+
+            // Nothing is written until the window has passed, or the changes are flushed
+            assertThat(exampleConfig).hasContent("# Kept\nintValue = 5\nstringValue = \"b\"\n");
+            writeBehind.flush();
+            assertThat(exampleConfig).hasContent("# Kept\nintValue = 7\nstringValue = \"c\"\n");
+
+            // Loading the config does not count as a change
+            Files.writeString(exampleConfig, "intValue = 8\nstringValue = \"d\"\n");
+            EpsilonUtil.parse(spec, exampleConfig, Assertions::fail);
+            assertThat(intValue.getAsInt()).isEqualTo(8);
+        }
+        assertThat(exampleConfig).hasContent("intValue = 8\nstringValue = \"d\"\n");
+
+        try (final WriteBehind ignored = EpsilonUtil.writeBehind(spec, exampleConfig, errors::add, Duration.ofMillis(50)))
+        {
+            intValue.set(9);
+
+            final long deadline = System.currentTimeMillis() + 10_000;
+            while (!Files.readString(exampleConfig).contains("intValue = 9") && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(10);
+            }
+        }
+
+        assertThat(exampleConfig).hasContent("intValue = 9\nstringValue = \"d\"\n");
+        assertThat(errors).isEmpty();
+
+        // After closing, changes are no longer written
+        intValue.set(10);
+        assertThat(exampleConfig).hasContent("intValue = 9\nstringValue = \"d\"\n");
+    }
+
+    @Test
+    public void testBuilderValidatesNames()
+    {
+        final SpecBuilder builder = Spec.builder(4);
+        builder.comment("First", "Second").define("value-1_A", 3);
+        builder.push("category").define("value-1_A", 4);
+
+        assertThatThrownBy(() -> builder.define("value-1_A", 5)).isInstanceOf(IllegalArgumentException.class).hasMessage("Name 'value-1_A' is already defined.");
+        assertThatThrownBy(() -> builder.define("1value", 5)).isInstanceOf(IllegalArgumentException.class).hasMessage("Name must match the pattern [A-Za-z][A-Za-z0-9-_]*");
+        assertThatThrownBy(() -> builder.define("value.a", 5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.push("")).isInstanceOf(IllegalArgumentException.class).hasMessage("Name is not allowed to be empty.");
+
+        final StringBuilder output = new StringBuilder();
+        assertThatCode(() -> builder.pop().build().write(output)).doesNotThrowAnyException();
+        assertThat(output.toString()).isEqualTo("# First\n# Second\nvalue-1_A = 3\n\n\n[category]\n\n    value-1_A = 4\n\n");
+    }
+
     private Path getResource(String path) throws Exception
     {
         final URL resource = ClassLoader.getSystemClassLoader().getResource(path);
@@ -216,6 +1141,32 @@ public class IntegrationTests
         return Path.of(resource.toURI());
     }
 
+    interface Named
+    {
+        default String name() { return "example"; }
+    }
+
+    @Config
+    interface ExampleConfig extends Named
+    {
+        @Comment("Must be a valid port")
+        @Range(min = 1, max = 65535)
+        default int port() { return 8080; }
+
+        default Day day() { return Day.MONDAY; }
+
+        @Comment("Limits applied per connection")
+        Limits limits();
+
+        interface Limits
+        {
+            @Range(min = 0, max = 1)
+            default float ratio() { return 0.5f; }
+
+            default boolean[] enabled() { return new boolean[] {true, false}; }
+        }
+    }
+
     enum Day
     {
         MONDAY, TUESDAY, WEDNESDAY, THURSDAY, FRIDAY, SATURDAY, SUNDAY
@@ -0,0 +1,92 @@
+package com.alcatrazescapee.epsilon;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.alcatrazescapee.epsilon.value.IntValue;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class SpecConcurrencyTests
+{
+    static final int VALUES = 64;
+    static final int GENERATIONS = 5_000;
+    static final int READERS = 4;
+
+    @Test
+    public void testConcurrentReadersNeverSeeHalfAppliedReload() throws Exception
+    {
+        final SpecBuilder builder = Spec.builder();
+        final IntValue[] values = new IntValue[VALUES];
+        for (int i = 0; i < VALUES; i++)
+        {
+            if (i % 16 == 0) (i == 0 ? builder : builder.pop()).push("category" + i);
+            values[i] = builder.define("value" + i, -1);
+        }
+        final Spec spec = builder.pop().build();
+
+        final List<Map<String, Object>> configs = new ArrayList<>();
+        for (int generation = 0; generation < 8; generation++)
+        {
+            final Map<String, Object> config = new HashMap<>();
+            for (int i = 0; i < VALUES; i++)
+            {
+                config.put("category" + (i - i % 16) + ".value" + i, generation);
+            }
+            configs.add(config);
+        }
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong reads = new AtomicLong();
+        final AtomicLong inconsistentReads = new AtomicLong();
+        final List<Thread> readers = new ArrayList<>();
+        for (int reader = 0; reader < READERS; reader++)
+        {
+            final Thread thread = new Thread(() -> {
+                while (running.get())
+                {
+                    final boolean consistent = spec.read(() -> {
+                        final int first = values[0].getAsInt();
+                        for (final IntValue value : values)
+                        {
+                            if (value.getAsInt() != first) return false;
+                        }
+                        return true;
+                    });
+                    if (!consistent) inconsistentReads.incrementAndGet();
+                    reads.incrementAndGet();
+                }
+            });
+            thread.start();
+            readers.add(thread);
+        }
+
+        for (int generation = 0; generation < GENERATIONS; generation++)
+        {
+            if (generation % 10 == 9)
+            {
+                spec.reset();
+            }
+            else
+            {
+                spec.parse(configs.get(generation % configs.size()), Assertions::fail);
+            }
+        }
+
+        running.set(false);
+        for (final Thread thread : readers)
+        {
+            thread.join();
+        }
+
+        assertThat(spec.generation()).isEqualTo(GENERATIONS);
+        assertThat(reads.get()).isPositive();
+        assertThat(inconsistentReads.get()).isZero();
+    }
+}
@@ -1,10 +1,12 @@
 package com.alcatrazescapee.epsilon;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public class TomlParseTests
 {
@@ -115,6 +117,43 @@ public class TomlParseTests
         ));
     }
 
+    @Test
+    public void testLongValue()
+    {
+        assertEquals(result(Map.of("int", Integer.MAX_VALUE, "long", 2147483648L, "min", Long.MIN_VALUE), false), parse(
+            "int = 2147483647",
+            "long = 2147483648",
+            "min = -9223372036854775808"
+        ));
+    }
+
+    @Test
+    public void testDoubleValue()
+    {
+        assertEquals(result(Map.of("float", 0.54321f, "double", 3.141592653589793, "big", 9223372036854775808.0), false), parse(
+            "float = 0.54321",
+            "double = 3.141592653589793",
+            "big = 9223372036854775808"
+        ));
+    }
+
+    @Test
+    public void testExponentValue()
+    {
+        assertEquals(result(Map.of("small", 1.0E-10f, "large", 2.5E300), false), parse(
+            "small = 1.0E-10",
+            "large = 2.5e+300"
+        ));
+    }
+
+    @Test
+    public void testInvalidNumberValue()
+    {
+        assertEquals(result(Map.of(), true), parse(
+            "foo = 1.2.3"
+        ));
+    }
+
     @Test
     public void testStringValue()
     {
@@ -131,6 +170,38 @@ public class TomlParseTests
         ));
     }
 
+    @Test
+    public void testStringValueWithUnicodeAndOctalEscapes()
+    {
+        assertEquals(result(Map.of("key", "A\u00e9 \0 \377 '"), false), parse(
+            "key = \"\\u0041\\u00E9 \\0 \\377 \\'\""
+        ));
+    }
+
+    @Test
+    public void testStringValueWithUnknownEscapes()
+    {
+        assertEquals(result(Map.of("key", "q 8 C:path"), false), parse(
+            "key = \"\\q \\8 C:\\path\""
+        ));
+    }
+
+    @Test
+    public void testStringValueWithMalformedUnicodeEscape()
+    {
+        assertEquals(true, parse(
+            "key = \"\\u00G1\""
+        ).errors());
+    }
+
+    @Test
+    public void testUnterminatedStringValue()
+    {
+        assertEquals(true, parse(
+            "key = \"stuff"
+        ).errors());
+    }
+
     @Test
     public void testIntListValue()
     {
@@ -175,6 +246,78 @@ public class TomlParseTests
         ));
     }
 
+    @Test
+    public void testVisitorEvents()
+    {
+        final List<String> events = new ArrayList<>();
+        final boolean errors = TomlUtil.parse(String.join("\n",
+            "key = 1",
+            "[foo.bar]",
+            "    list = [ true, [ 2.5, \"str\" ] ]",
+            "    invalid = [ 1, ]"
+        ), new TomlUtil.Visitor() {
+            @Override public void visitCategory(String category) { events.add("category " + category); }
+            @Override public void visitKey(String key) { events.add("key " + key); }
+            @Override public void visitInt(int value) { events.add("int " + value); }
+            @Override public void visitFloat(float value) { events.add("float " + value); }
+            @Override public void visitBool(boolean value) { events.add("bool " + value); }
+            @Override public void visitString(String value) { events.add("string " + value); }
+            @Override public void visitListStart() { events.add("["); }
+            @Override public void visitListEnd() { events.add("]"); }
+            @Override public void visitInvalidValue() { events.add("invalid"); }
+        });
+
+        assertEquals(true, errors);
+        assertEquals(List.of(
+            "key key", "int 1",
+            "category foo.bar",
+            "key list", "[", "bool true", "[", "float 2.5", "string str", "]", "]",
+            "key invalid", "[", "int 1", "invalid"
+        ), events);
+    }
+
+    @Test
+    public void testSymbolsResolveCanonicalNames()
+    {
+        final String key = "key", category = "foo.bar";
+        final List<String> names = new ArrayList<>();
+        final boolean errors = TomlUtil.parse(String.join("\n",
+            "key = 1",
+            "[foo.bar]",
+            "key = 2",
+            "[ foo . bar ]",
+            "other = 3"
+        ), new TomlUtil.Visitor() {
+            @Override public void visitCategory(String category) { names.add(category); }
+            @Override public void visitKey(String key) { names.add(key); }
+        }, new Symbols(List.of(key, category, "foo", "bar")));
+
+        assertEquals(false, errors);
+        assertEquals(List.of("key", "foo.bar", "key", "foo.bar", "other"), names);
+        assertSame(key, names.get(0));
+        assertSame(category, names.get(1));
+        assertSame(key, names.get(2));
+    }
+
+    @Test
+    public void testIncludeDirectives()
+    {
+        final List<String> included = new ArrayList<>();
+        final boolean errors = TomlUtil.parse(String.join("\n",
+            "include \"base.toml\"",
+            "include = 1",
+            "include \"host.toml\"",
+            "[foo]",
+            "include \"late.toml\""
+        ), new TomlUtil.Visitor() {
+            @Override public void visitKey(String key) { included.add("key " + key); }
+            @Override public void visitInclude(String path) { included.add(path); }
+        });
+
+        assertEquals(true, errors);
+        assertEquals(List.of("base.toml", "key include", "host.toml"), included);
+    }
+
     private TomlUtil.TomlParseResult parse(String... lines)
     {
         return TomlUtil.parse(String.join("\n", lines));
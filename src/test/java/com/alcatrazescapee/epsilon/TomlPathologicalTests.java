@@ -0,0 +1,120 @@
+package com.alcatrazescapee.epsilon;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Generated inputs which are pathological for a naive scanner or parser, i.e. deeply nested, very long, or almost entirely invalid. Each is parsed without limits, at a size where any quadratic behavior, or recursion, would fail the time, allocation, or stack bounds.
+ */
+public class TomlPathologicalTests
+{
+    static final int SIZE = 1_000_000;
+    static final long MAX_NANOS = 5_000_000_000L;
+    static final long MAX_BYTES_PER_CHAR = 256;
+
+    static final TomlUtil.Limits UNLIMITED = new TomlUtil.Limits(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    static final Map<String, IntFunction<String>> INPUTS = new LinkedHashMap<>();
+
+    static
+    {
+        INPUTS.put("unclosed lists", n -> "key = " + "[".repeat(n));
+        INPUTS.put("nested lists", n -> "key = " + "[".repeat(n / 2) + "1" + "]".repeat(n / 2));
+        INPUTS.put("nested list elements", n -> "key = " + "[1, ".repeat(n / 4) + "1" + "]".repeat(n / 4));
+        INPUTS.put("unterminated string", n -> "key = \"" + "a".repeat(n));
+        INPUTS.put("unterminated escape", n -> "key = \"" + "a".repeat(n) + "\\");
+        INPUTS.put("unicode escapes", n -> "key = \"" + "\\u0041".repeat(n / 6) + "\"");
+        INPUTS.put("malformed unicode escapes", n -> "key = \"" + "\\u".repeat(n / 2) + "\"");
+        INPUTS.put("backslashes", n -> "key = \"" + "\\\\".repeat(n / 2) + "\"");
+        INPUTS.put("invalid characters", n -> "!".repeat(n));
+        INPUTS.put("invalid tokens", n -> "= ".repeat(n / 2));
+        INPUTS.put("category dots", n -> "[" + "a.".repeat(n / 2) + "a]");
+        INPUTS.put("integer digits", n -> "key = " + "1".repeat(n));
+        INPUTS.put("fraction digits", n -> "key = 0." + "0".repeat(n) + "1");
+        INPUTS.put("exponent digits", n -> "key = 1e" + "9".repeat(n));
+        INPUTS.put("dots", n -> "key = " + ".".repeat(n));
+        INPUTS.put("comment", n -> "#" + "#".repeat(n));
+        INPUTS.put("keys", n -> "a = 1\n".repeat(n / 6));
+        INPUTS.put("list elements", n -> "key = [" + "1, ".repeat(n / 3) + "1]");
+    }
+
+    @Test
+    public void testPathologicalInputsParseInLinearTime()
+    {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().getId();
+        for (final Map.Entry<String, IntFunction<String>> entry : INPUTS.entrySet())
+        {
+            // Warm up on a smaller input, so the bound is not dominated by the interpreter
+            final String text = entry.getValue().apply(SIZE);
+            TomlUtil.parse(entry.getValue().apply(SIZE / 100), new TomlUtil.MapVisitor(), UNLIMITED);
+
+            final long allocated = threads.getThreadAllocatedBytes(thread);
+            final long start = System.nanoTime();
+            assertThatCode(() -> TomlUtil.parse(text, new TomlUtil.MapVisitor(), UNLIMITED)).as(entry.getKey()).doesNotThrowAnyException();
+            final long time = System.nanoTime() - start;
+            final long bytes = threads.getThreadAllocatedBytes(thread) - allocated;
+
+            assertThat(time).as("Time to parse %s (ns)", entry.getKey()).isLessThan(MAX_NANOS);
+            assertThat(bytes).as("Bytes allocated parsing %s", entry.getKey()).isLessThan(MAX_BYTES_PER_CHAR * text.length());
+        }
+    }
+
+    @Test
+    public void testLimitsStopParsing()
+    {
+        final TomlUtil.Limits limits = new TomlUtil.Limits(100, 2, 10);
+
+        assertThat(TomlUtil.parse("key = [[1]]", new TomlUtil.MapVisitor(), limits)).isFalse();
+        assertThat(TomlUtil.parse("key = [[[1]]]", new TomlUtil.MapVisitor(), limits)).isTrue();
+        assertThat(TomlUtil.parse("key = 1\n".repeat(3), new TomlUtil.MapVisitor(), limits)).isFalse();
+        assertThat(TomlUtil.parse("key = 1\n".repeat(4), new TomlUtil.MapVisitor(), limits)).isTrue();
+        assertThat(TomlUtil.parse("#".repeat(101), new TomlUtil.MapVisitor(), limits)).isTrue();
+        assertThat(TomlUtil.parse("key = " + "[".repeat(SIZE), new TomlUtil.MapVisitor())).isTrue();
+    }
+
+    @Test
+    public void testLimitsAllowTrailingWhitespaceAndComments()
+    {
+        final TomlUtil.Limits limits = new TomlUtil.Limits(100, 2, 3);
+
+        assertThat(TomlUtil.parse("key = 1", new TomlUtil.MapVisitor(), limits)).isFalse();
+        assertThat(TomlUtil.parse("key = 1\n", new TomlUtil.MapVisitor(), limits)).isFalse();
+        assertThat(TomlUtil.parse("key = 1 # comment\n\n# another\n", new TomlUtil.MapVisitor(), limits)).isFalse();
+        assertThat(TomlUtil.parse("key = 1\nother", new TomlUtil.MapVisitor(), limits)).isTrue();
+    }
+
+    @Test
+    public void testDepthLimitStopsParsing()
+    {
+        final TomlUtil.MapVisitor visitor = new TomlUtil.MapVisitor();
+
+        assertThat(TomlUtil.parse("key = [[[1]]]\nother = 2\n", visitor, new TomlUtil.Limits(100, 2, 100))).isTrue();
+        assertThat(visitor.values).doesNotContainKey("other");
+    }
+
+    @Test
+    public void testUnterminatedStrings()
+    {
+        assertThat(TomlUtil.parse("key = \"abc\\", new TomlUtil.MapVisitor())).isTrue();
+        assertThat(TomlUtil.parse("key = \"\\", new TomlUtil.MapVisitor())).isTrue();
+        assertThat(TomlUtil.parse("key = \"abc", new TomlUtil.MapVisitor())).isTrue();
+    }
+
+    @Test
+    public void testSpecLimits()
+    {
+        final SpecBuilder builder = Spec.builder();
+        builder.define("key", 3);
+        final Spec spec = builder.build();
+
+        assertThat(spec.parse("key = 5\nother = [[1]]\n", error -> {})).isFalse();
+        spec.setLimits(new TomlUtil.Limits(Integer.MAX_VALUE, 1, Integer.MAX_VALUE));
+        assertThat(spec.parse("key = 5\nother = [[1]]\n", error -> {})).isTrue();
+    }
+}